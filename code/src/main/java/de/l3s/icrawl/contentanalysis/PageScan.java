@@ -0,0 +1,179 @@
+package de.l3s.icrawl.contentanalysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import de.l3s.icrawl.util.TextExtractor;
+import de.l3s.icrawl.util.TextExtractor.TextCollector;
+
+/**
+ * Everything the analysis needs from a document, collected in one pass over
+ * the DOM.
+ *
+ * Gives the same results as separate calls of
+ * {@link TextExtractor#extractText(Document)}, <tt>doc.select("a[href]")</tt>
+ * and the element lookups of {@link WebPageDateExtractor}.
+ */
+public class PageScan {
+    private final String text;
+    private final List<Element> links;
+    private final List<Element> timeElements;
+    private final List<Element> metaElements;
+    private final List<TextNode> triggerTextNodes;
+    private final List<TextNode> dateTextNodes;
+
+    private PageScan(String text, List<Element> links, List<Element> timeElements, List<Element> metaElements,
+            List<TextNode> triggerTextNodes, List<TextNode> dateTextNodes) {
+        this.text = text;
+        this.links = links;
+        this.timeElements = timeElements;
+        this.metaElements = metaElements;
+        this.triggerTextNodes = triggerTextNodes;
+        this.dateTextNodes = dateTextNodes;
+    }
+
+    public static PageScan scan(Document doc) {
+        return new Scanner(doc).scan();
+    }
+
+    /** The text content, as by {@link TextExtractor#extractText(Document)} */
+    public String getText() {
+        return text;
+    }
+
+    /** All <tt>a</tt> elements with a <tt>href</tt> attribute */
+    public List<Element> getLinks() {
+        return links;
+    }
+
+    /** All <tt>time</tt> elements */
+    List<Element> getTimeElements() {
+        return timeElements;
+    }
+
+    /** All <tt>meta</tt> elements */
+    List<Element> getMetaElements() {
+        return metaElements;
+    }
+
+    /** Text nodes of the body that contain a date trigger word */
+    List<TextNode> getTriggerTextNodes() {
+        return triggerTextNodes;
+    }
+
+    /** Text nodes of the body that are searched for dates without trigger word */
+    List<TextNode> getDateTextNodes() {
+        return dateTextNodes;
+    }
+
+    private static class Scanner {
+        private final Document doc;
+        private final Element body;
+        private final TextCollector text = new TextCollector();
+        private final List<Element> links = new ArrayList<>();
+        private final List<Element> timeElements = new ArrayList<>();
+        private final List<Element> metaElements = new ArrayList<>();
+        private final List<TextNode> triggerTextNodes = new ArrayList<>();
+        private final List<TextNode> dateTextNodes = new ArrayList<>();
+        /** number of enclosing elements whose text is not extracted */
+        private int ignoredDepth = 0;
+        /** number of enclosing elements not searched for dates */
+        private int skippedDepth = 0;
+        private boolean inBody;
+
+        Scanner(Document doc) {
+            this.doc = doc;
+            this.body = doc.body();
+            // without a body the whole document is searched for dates
+            this.inBody = body == null;
+        }
+
+        PageScan scan() {
+            // iterative pre- and post-order traversal, as in jsoup's NodeTraversor
+            Node node = doc;
+            int depth = 0;
+            while (node != null) {
+                head(node, depth);
+                if (node.childNodeSize() > 0) {
+                    node = node.childNode(0);
+                    depth++;
+                } else {
+                    while (node.nextSibling() == null && depth > 0) {
+                        tail(node);
+                        node = node.parentNode();
+                        depth--;
+                    }
+                    tail(node);
+                    if (node == doc) {
+                        break;
+                    }
+                    node = node.nextSibling();
+                }
+            }
+            return new PageScan(text.getText(), links, timeElements, metaElements, triggerTextNodes,
+                dateTextNodes);
+        }
+
+        private void head(Node node, int depth) {
+            if (node instanceof Element) {
+                Element element = (Element) node;
+                String tagName = element.tagName();
+                if (element == body) {
+                    inBody = true;
+                }
+                if ("a".equals(tagName) && element.hasAttr("href")) {
+                    links.add(element);
+                } else if ("time".equals(tagName)) {
+                    timeElements.add(element);
+                } else if ("meta".equals(tagName)) {
+                    metaElements.add(element);
+                }
+                if (depth > 0 && (ignoredDepth > 0 || TextExtractor.isIgnoredTag(element.tag()))) {
+                    ignoredDepth++;
+                } else if (depth > 0) {
+                    text.element(element);
+                }
+                if (isSkipped(element)) {
+                    skippedDepth++;
+                }
+            } else if (node instanceof TextNode) {
+                TextNode textNode = (TextNode) node;
+                // text directly below the document is not part of any element
+                if (depth > 1 && ignoredDepth == 0) {
+                    text.text(textNode);
+                }
+                if (inBody && skippedDepth == 0) {
+                    dateTextNodes.add(textNode);
+                    if (WebPageDateExtractor.DATE_TRIGGERS.matcher(textNode.text()).find()) {
+                        triggerTextNodes.add(textNode);
+                    }
+                }
+            }
+        }
+
+        private void tail(Node node) {
+            if (node instanceof Element) {
+                Element element = (Element) node;
+                if (ignoredDepth > 0) {
+                    ignoredDepth--;
+                }
+                if (isSkipped(element)) {
+                    skippedDepth--;
+                }
+                if (element == body) {
+                    inBody = false;
+                }
+            }
+        }
+
+        private static boolean isSkipped(Element element) {
+            return WebPageDateExtractor.SKIPPED_ELEMENTS.contains(element.tagName());
+        }
+    }
+
+}
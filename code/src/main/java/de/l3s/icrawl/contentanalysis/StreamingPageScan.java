@@ -0,0 +1,367 @@
+package de.l3s.icrawl.contentanalysis;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.nodes.Attributes;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.l3s.icrawl.util.HtmlTokenizer;
+import de.l3s.icrawl.util.TextExtractor;
+import de.l3s.icrawl.util.TextExtractor.TextCollector;
+
+/**
+ * Collects the same information as {@link PageScan} from a stream of
+ * {@link HtmlTokenizer} tokens, without building a DOM.
+ *
+ * The tree construction of HTML is only approximated: elements are closed by
+ * their end tag, paragraphs are closed implicitly by the next block, and
+ * content before the body counts as head. For well formed pages the results
+ * match the DOM based scan, {@link de.l3s.icrawl.crawler.tools.StreamingScanComparison}
+ * measures the differences on real pages.
+ */
+public class StreamingPageScan {
+    /** Text of a paragraph, identified by the position of the paragraph in the page */
+    static final class DateText {
+        private final int paragraph;
+        private final String text;
+
+        DateText(int paragraph, String text) {
+            this.paragraph = paragraph;
+            this.text = text;
+        }
+
+        int getParagraph() {
+            return paragraph;
+        }
+
+        String getText() {
+            return text;
+        }
+    }
+
+    private final String text;
+    private final List<String> links;
+    private final List<Attributes> timeElements;
+    private final List<Attributes> metaElements;
+    private final List<DateText> triggerParagraphs;
+    private final List<DateText> dateTexts;
+
+    private StreamingPageScan(String text, List<String> links, List<Attributes> timeElements,
+            List<Attributes> metaElements, List<DateText> triggerParagraphs, List<DateText> dateTexts) {
+        this.text = text;
+        this.links = links;
+        this.timeElements = timeElements;
+        this.metaElements = metaElements;
+        this.triggerParagraphs = triggerParagraphs;
+        this.dateTexts = dateTexts;
+    }
+
+    public static StreamingPageScan scan(String html, String baseUrl) {
+        Scanner scanner = new Scanner(baseUrl);
+        HtmlTokenizer.tokenize(html, scanner);
+        return scanner.finish();
+    }
+
+    /** The text content, as by {@link TextExtractor#extractText(org.jsoup.nodes.Document)} */
+    public String getText() {
+        return text;
+    }
+
+    /** Absolute URLs of all <tt>a</tt> elements with a <tt>href</tt> attribute */
+    public List<String> getLinks() {
+        return links;
+    }
+
+    /** Attributes of all <tt>time</tt> elements */
+    List<Attributes> getTimeElements() {
+        return timeElements;
+    }
+
+    /** Attributes of all <tt>meta</tt> elements */
+    List<Attributes> getMetaElements() {
+        return metaElements;
+    }
+
+    /** Full text of the paragraphs with a date trigger word */
+    List<DateText> getTriggerParagraphs() {
+        return triggerParagraphs;
+    }
+
+    /** Text nodes of the body with the paragraph they belong to */
+    List<DateText> getDateTexts() {
+        return dateTexts;
+    }
+
+    private static class Frame {
+        private final String name;
+        private final boolean ignored;
+        private final boolean skipped;
+        private final Paragraph paragraph;
+
+        Frame(String name, boolean ignored, boolean skipped, Paragraph paragraph) {
+            this.name = name;
+            this.ignored = ignored;
+            this.skipped = skipped;
+            this.paragraph = paragraph;
+        }
+    }
+
+    private static class Paragraph {
+        private final int id;
+        /** start of the paragraph in the element text */
+        private final int start;
+        private final Paragraph parent;
+        /** index in the trigger paragraphs, -1 without trigger word */
+        private int triggerIndex = -1;
+
+        Paragraph(int id, int start, Paragraph parent) {
+            this.id = id;
+            this.start = start;
+            this.parent = parent;
+        }
+    }
+
+    private static class Scanner implements HtmlTokenizer.Handler {
+        private static final Set<String> VOID_ELEMENTS = ImmutableSet.of("area", "base", "br", "col", "embed",
+            "hr", "img", "input", "keygen", "link", "meta", "param", "source", "track", "wbr", "basefont",
+            "bgsound", "frame", "command");
+        /** elements that stay in the head when there is no head tag */
+        private static final Set<String> HEAD_ELEMENTS = ImmutableSet.of("html", "head", "title", "meta", "link",
+            "base", "script", "style", "noscript", "template");
+        /** same as {@link de.l3s.icrawl.util.WebPageUtils#findParagraphParent(org.jsoup.nodes.Node, int)} */
+        private static final Set<String> PARAGRAPH_ELEMENTS = ImmutableSet.of("p", "div", "li", "dd", "dt",
+            "blockquote", "pre", "caption", "th", "td");
+        /** elements that close an open paragraph */
+        private static final Set<String> CLOSES_P = ImmutableSet.of("address", "article", "aside", "blockquote",
+            "div", "dl", "fieldset", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "menu",
+            "nav", "ol", "p", "pre", "section", "table", "ul");
+        /** elements that close an open element of the same name */
+        private static final Set<String> CLOSES_SAME = ImmutableSet.of("li", "dt", "dd", "td", "th", "tr", "option");
+        /** elements that limit the search for implicitly closed elements */
+        private static final Set<String> SCOPE_ELEMENTS = ImmutableSet.of("html", "body", "table", "ul", "ol", "dl",
+            "td", "th", "caption", "button", "object");
+
+        private URL baseUrl;
+        private boolean baseUrlSet = false;
+        private final TextCollector text = new TextCollector();
+        /** concatenated text of all elements, as by {@link org.jsoup.nodes.Element#text()} */
+        private final StringBuilder elementText = new StringBuilder(4096);
+        private final List<Frame> stack = new ArrayList<>();
+        private final List<String> links = new ArrayList<>();
+        private final List<Attributes> timeElements = new ArrayList<>();
+        private final List<Attributes> metaElements = new ArrayList<>();
+        private final List<DateText> triggerParagraphs = new ArrayList<>();
+        private final List<DateText> dateTexts = new ArrayList<>();
+        private Paragraph paragraph = new Paragraph(0, 0, null);
+        private int paragraphCount = 1;
+        private int ignoredDepth = 0;
+        private int skippedDepth = 0;
+        private boolean inBody = false;
+
+        Scanner(String baseUrl) {
+            try {
+                this.baseUrl = new URL(baseUrl);
+            } catch (MalformedURLException e) {
+                this.baseUrl = null;
+            }
+        }
+
+        @Override
+        public void startTag(String name, Attributes attributes, boolean selfClosing) {
+            if ("html".equals(name)) {
+                return;
+            }
+            if ("body".equals(name) || (!inBody && !HEAD_ELEMENTS.contains(name))) {
+                startBody();
+            }
+            if (CLOSES_P.contains(name)) {
+                closeInScope("p");
+            }
+            if (CLOSES_SAME.contains(name)) {
+                closeInScope(name);
+            }
+            boolean ignored = ignoredDepth > 0 || !inBody || TextExtractor.isIgnoredElement(name);
+            if (!ignored) {
+                text.element(name);
+            }
+            if (TextExtractor.isBlockElement(name) || "br".equals(name)) {
+                ensureEndsWithSpace(elementText);
+            }
+            switch (name) {
+            case "a":
+                if (attributes.hasKey("href")) {
+                    links.add(resolve(attributes.get("href")));
+                }
+                break;
+            case "time":
+                timeElements.add(attributes);
+                break;
+            case "meta":
+                metaElements.add(attributes);
+                break;
+            case "base":
+                if (!baseUrlSet && attributes.hasKey("href")) {
+                    baseUrlSet = true;
+                    String resolved = resolve(attributes.get("href"));
+                    if (!resolved.isEmpty()) {
+                        try {
+                            baseUrl = new URL(resolved);
+                        } catch (MalformedURLException e) {
+                            // keep the document URL
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+            if (VOID_ELEMENTS.contains(name)) {
+                return;
+            }
+            Paragraph newParagraph = null;
+            if (PARAGRAPH_ELEMENTS.contains(name)) {
+                newParagraph = new Paragraph(paragraphCount++, elementText.length(), paragraph);
+                paragraph = newParagraph;
+            }
+            boolean skipped = WebPageDateExtractor.SKIPPED_ELEMENTS.contains(name);
+            if (ignored) {
+                ignoredDepth++;
+            }
+            if (skipped) {
+                skippedDepth++;
+            }
+            stack.add(new Frame(name, ignored, skipped, newParagraph));
+        }
+
+        private void startBody() {
+            if (inBody) {
+                return;
+            }
+            // the head ends where the body starts
+            closeInScope("head");
+            inBody = true;
+        }
+
+        /** Close the innermost open element with the given name */
+        private void closeInScope(String name) {
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                String openName = stack.get(i).name;
+                if (openName.equals(name)) {
+                    closeTo(i);
+                    return;
+                } else if (SCOPE_ELEMENTS.contains(openName)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void endTag(String name) {
+            // the body extends to the end of the document
+            if ("html".equals(name) || "body".equals(name)) {
+                return;
+            }
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                if (stack.get(i).name.equals(name)) {
+                    closeTo(i);
+                    return;
+                }
+            }
+        }
+
+        private void closeTo(int index) {
+            for (int i = stack.size() - 1; i >= index; i--) {
+                close(stack.remove(i));
+            }
+        }
+
+        private void close(Frame frame) {
+            if (frame.ignored) {
+                ignoredDepth--;
+            }
+            if (frame.skipped) {
+                skippedDepth--;
+            }
+            if (frame.paragraph != null) {
+                closeParagraph(frame.paragraph);
+                paragraph = frame.paragraph.parent;
+            }
+        }
+
+        private void closeParagraph(Paragraph p) {
+            if (p.triggerIndex >= 0) {
+                String paragraphText = elementText.substring(p.start).trim();
+                triggerParagraphs.set(p.triggerIndex, new DateText(p.id, paragraphText));
+            }
+        }
+
+        @Override
+        public void text(String raw) {
+            String normalized = StringUtil.normaliseWhitespace(raw);
+            if (!inBody) {
+                if (StringUtil.isBlank(normalized)) {
+                    return;
+                }
+                if (ignoredDepth == 0) {
+                    // text outside of head elements starts the body
+                    startBody();
+                }
+            }
+            if (ignoredDepth == 0) {
+                text.text(normalized);
+            }
+            if (normalized.startsWith(" ") && endsWithSpace(elementText)) {
+                elementText.append(normalized, 1, normalized.length());
+            } else {
+                elementText.append(normalized);
+            }
+            if (inBody && skippedDepth == 0) {
+                dateTexts.add(new DateText(paragraph.id, normalized));
+                if (paragraph.triggerIndex < 0 && WebPageDateExtractor.DATE_TRIGGERS.matcher(normalized).find()) {
+                    paragraph.triggerIndex = triggerParagraphs.size();
+                    triggerParagraphs.add(null);
+                }
+            }
+        }
+
+        StreamingPageScan finish() {
+            closeTo(0);
+            closeParagraph(paragraph);
+            return new StreamingPageScan(text.getText(), links, timeElements, metaElements, triggerParagraphs,
+                dateTexts);
+        }
+
+        /** Resolve a URL like {@link org.jsoup.nodes.Node#absUrl(String)} */
+        private String resolve(String relUrl) {
+            try {
+                if (baseUrl == null) {
+                    return new URL(relUrl).toExternalForm();
+                }
+                // the path is kept for URLs that are only a query
+                if (relUrl.startsWith("?")) {
+                    relUrl = baseUrl.getPath() + relUrl;
+                }
+                return new URL(baseUrl, relUrl).toExternalForm();
+            } catch (MalformedURLException e) {
+                return "";
+            }
+        }
+
+        private static boolean endsWithSpace(StringBuilder sb) {
+            return sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ';
+        }
+
+        private static void ensureEndsWithSpace(StringBuilder sb) {
+            if (sb.length() > 0 && !endsWithSpace(sb)) {
+                sb.append(' ');
+            }
+        }
+    }
+
+}
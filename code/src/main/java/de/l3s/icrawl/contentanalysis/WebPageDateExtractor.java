@@ -20,6 +20,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.hadoop.mapreduce.Mapper;
+import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
@@ -109,7 +110,7 @@ public class WebPageDateExtractor {
     static final Pattern DATE_TRIGGERS = Pattern.compile(
         "created?|updated?|modified|last modifi|letzte? (ge|ver)?änder|publi(z|sh)",
         CASE_INSENSITIVE | UNICODE_CHARACTER_CLASS);
-    private static final Set<String> SKIPPED_ELEMENTS = ImmutableSet.of("script", "style", "pre");
+    static final Set<String> SKIPPED_ELEMENTS = ImmutableSet.of("script", "style", "pre");
     private static final Map<String, Integer> NAMES_TO_MONTH = namesMap();
     static final List<Pattern> DATE_PATTERNS = buildDatePattern();
 
@@ -174,16 +175,73 @@ public class WebPageDateExtractor {
      * @throws InterruptedException
      */
     public static WebPageDate extractModifiedDate(Document dom) throws InterruptedException {
-        Map<Element, WebPageDate> candidates = findCandidateElements(dom);
+        return extractModifiedDate(PageScan.scan(dom));
+    }
+
+    /**
+     * Extract the likely modification date from the elements collected by
+     * {@link PageScan}.
+     *
+     * @return the modification date or null
+     * @throws InterruptedException
+     */
+    public static WebPageDate extractModifiedDate(PageScan page) throws InterruptedException {
+        Map<Element, WebPageDate> candidates = findCandidateElements(page);
         logger.trace("Found {} candidates: {}", candidates.size(), candidates);
         candidates = Maps.filterValues(candidates, VALID_DATE_PREDICATE);
         if (candidates.isEmpty()) {
-            candidates = Maps.filterValues(findElementsWithDate(dom), VALID_DATE_PREDICATE);
+            candidates = Maps.filterValues(findElementsWithDate(page), VALID_DATE_PREDICATE);
         }
         return getBestDateMatch(candidates);
     }
 
-    private static WebPageDate getBestDateMatch(Map<Element, WebPageDate> candidates) {
+    /**
+     * Extract the likely modification date from a page scanned without DOM.
+     *
+     * Paragraphs take the place of the elements of the DOM based extraction.
+     *
+     * @return the modification date or null
+     * @throws InterruptedException
+     */
+    public static WebPageDate extractModifiedDate(StreamingPageScan page) throws InterruptedException {
+        Map<Object, WebPageDate> candidates = new LinkedHashMap<>();
+        for (Attributes attributes : page.getTimeElements()) {
+            ZonedDateTime date = getTimeDate(attributes);
+            if (date != null) {
+                candidates.put(attributes, new WebPageDate(date, DateSource.TIME));
+            }
+        }
+        for (Attributes attributes : page.getMetaElements()) {
+            ZonedDateTime date = getMetaDate(attributes);
+            if (date != null) {
+                candidates.put(attributes, new WebPageDate(date, DateSource.META));
+            }
+        }
+        for (StreamingPageScan.DateText paragraph : page.getTriggerParagraphs()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            ZonedDateTime date = findDateMatch(paragraph.getText());
+            if (date != null) {
+                candidates.put(paragraph.getParagraph(), new WebPageDate(date, DateSource.TRIGGER_WORD));
+            }
+        }
+        logger.trace("Found {} candidates: {}", candidates.size(), candidates);
+        Map<Object, WebPageDate> validCandidates = Maps.filterValues(candidates, VALID_DATE_PREDICATE);
+        if (validCandidates.isEmpty()) {
+            Map<Object, WebPageDate> textDates = new LinkedHashMap<>();
+            for (StreamingPageScan.DateText text : page.getDateTexts()) {
+                ZonedDateTime date = findDateMatch(text.getText());
+                if (date != null) {
+                    textDates.put(text.getParagraph(), new WebPageDate(date, DateSource.TEXT_DATE));
+                }
+            }
+            validCandidates = Maps.filterValues(textDates, VALID_DATE_PREDICATE);
+        }
+        return getBestDateMatch(validCandidates);
+    }
+
+    private static WebPageDate getBestDateMatch(Map<?, WebPageDate> candidates) {
         Comparator<WebPageDate> comparator = (wpd1, wpd2) -> {
             int cmp = wpd1.getDateSource().compareTo(wpd2.getDateSource());
             if (cmp != 0) {
@@ -203,43 +261,39 @@ public class WebPageDateExtractor {
         return candidates.values().stream().collect(maxBy(comparator)).orElse(null);
     }
 
-    private static Map<Element, WebPageDate> findElementsWithDate(Document dom) {
+    private static Map<Element, WebPageDate> findElementsWithDate(PageScan page) {
         Map<Element, WebPageDate> candidates = new LinkedHashMap<>();
 
-        for (Node n : new TreeWalker(findDomRoot(dom), SKIPPED_ELEMENTS)) {
-            if (n instanceof TextNode) {
-                ZonedDateTime dateTime = findDateMatch(((TextNode) n).text());
-                if (dateTime != null) {
-                    Element element = WebPageUtils.findParagraphParent(n, -1);
-                    candidates.put(element, new WebPageDate(dateTime, DateSource.TEXT_DATE));
-                }
+        for (TextNode n : page.getDateTextNodes()) {
+            ZonedDateTime dateTime = findDateMatch(n.text());
+            if (dateTime != null) {
+                Element element = WebPageUtils.findParagraphParent(n, -1);
+                candidates.put(element, new WebPageDate(dateTime, DateSource.TEXT_DATE));
             }
         }
         return candidates;
     }
 
-    private static Map<Element, WebPageDate> findCandidateElements(Document dom) throws InterruptedException {
+    private static Map<Element, WebPageDate> findCandidateElements(PageScan page) throws InterruptedException {
         Map<Element, WebPageDate> candidates = new LinkedHashMap<>();
-        for (Element element : dom.getElementsByTag("time")) {
-            ZonedDateTime date = getTimeElementDate(element);
+        for (Element element : page.getTimeElements()) {
+            ZonedDateTime date = getTimeDate(element.attributes());
             if (date != null) {
                 candidates.put(element, new WebPageDate(date, DateSource.TIME));
             }
         }
-        for (Element element : dom.getElementsByTag("meta")) {
-            ZonedDateTime date = getMetaElementDate(element);
+        for (Element element : page.getMetaElements()) {
+            ZonedDateTime date = getMetaDate(element.attributes());
             if (date != null) {
                 candidates.put(element, new WebPageDate(date, DateSource.META));
             }
 
         }
-        for (Node n : new TreeWalker(findDomRoot(dom), SKIPPED_ELEMENTS)) {
+        for (TextNode n : page.getTriggerTextNodes()) {
             if (Thread.interrupted()) {
                 throw new InterruptedException();
             }
-            if (n instanceof TextNode && DATE_TRIGGERS.matcher(((TextNode) n).text()).find()) {
-                extractDateFromTextNode((TextNode) n, candidates);
-            }
+            extractDateFromTextNode(n, candidates);
         }
         return candidates;
     }
@@ -260,11 +314,12 @@ public class WebPageDateExtractor {
         return root;
     }
 
-    private static ZonedDateTime getMetaElementDate(Element element) {
+    /** Get date from the attributes of a <meta> element. */
+    private static ZonedDateTime getMetaDate(Attributes attributes) {
         for (String name : DateUtils.META_ATTRIBUTE_NAMES) {
-            String value = element.attr(name);
+            String value = attributes.get(name);
             if (value != null && DateUtils.dateMetaKey(value)) {
-                ZonedDateTime parsedDate = DateUtils.liberalParseDate(element.attr("content"));
+                ZonedDateTime parsedDate = DateUtils.liberalParseDate(attributes.get("content"));
                 if (parsedDate != null) {
                     return parsedDate;
                 }
@@ -273,25 +328,54 @@ public class WebPageDateExtractor {
         return null;
     }
 
-    /** Get date from a <time> element. */
-    private static ZonedDateTime getTimeElementDate(Element element) {
-        if (element.hasAttr("datetime")) {
-            return DateUtils.liberalParseDate(element.attr("datetime"));
+    /** Get date from the attributes of a <time> element. */
+    private static ZonedDateTime getTimeDate(Attributes attributes) {
+        if (attributes.hasKey("datetime")) {
+            return DateUtils.liberalParseDate(attributes.get("datetime"));
         } else {
-            logger.trace("Expected attribte 'datetime' on element '{}'", element);
+            logger.trace("Expected attribte 'datetime' on element with attributes '{}'", attributes);
             return null;
         }
     }
 
     public static WebPageDate getModifiedDate(String url, Document document, Long httpModifiedTime,
             Mapper<?, ?, ?, ?>.Context context) throws InterruptedException {
+        return getModifiedDate(url, () -> extractModifiedDate(PageScan.scan(document)), httpModifiedTime, context);
+    }
+
+    /**
+     * Same as {@link #getModifiedDate(String, Document, Long, Mapper.Context)}
+     * for a document that has already been scanned.
+     */
+    public static WebPageDate getModifiedDate(String url, PageScan page, Long httpModifiedTime,
+            Mapper<?, ?, ?, ?>.Context context) throws InterruptedException {
+        return getModifiedDate(url, () -> extractModifiedDate(page), httpModifiedTime, context);
+    }
+
+    /**
+     * Same as {@link #getModifiedDate(String, Document, Long, Mapper.Context)}
+     * for a page scanned without DOM.
+     */
+    public static WebPageDate getModifiedDate(String url, StreamingPageScan page, Long httpModifiedTime,
+            Mapper<?, ?, ?, ?>.Context context) throws InterruptedException {
+        return getModifiedDate(url, () -> extractModifiedDate(page), httpModifiedTime, context);
+    }
+
+    /** Date extraction from the content that is only run when needed */
+    private interface ContentDateExtraction {
+        WebPageDate extract() throws InterruptedException;
+    }
+
+    private static WebPageDate getModifiedDate(String url, ContentDateExtraction contentExtraction,
+            Long httpModifiedTime, Mapper<?, ?, ?, ?>.Context context) throws InterruptedException {
         LocalDate urlDate = DateUtils.extractDateFromUrl(url);
         if (urlDate != null && isValidDate(urlDate.atStartOfDay().atZone(ZoneOffset.UTC))) {
             incrementCount(context, DateSource.URL);
             return new WebPageDate(urlDate.atStartOfDay().atZone(ZoneOffset.UTC), DateSource.URL);
         }
 
-        WebPageDate contentDate = extractModifiedDate(document);
+        // the document is only scanned when the URL contains no date
+        WebPageDate contentDate = contentExtraction.extract();
         if (contentDate != null && isValidDate(contentDate.getDate())) {
             incrementCount(context, contentDate.getDateSource());
             return contentDate;
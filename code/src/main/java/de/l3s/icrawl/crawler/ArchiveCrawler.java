@@ -38,11 +38,23 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.l3s.icrawl.crawler.analysis.ResourceAnalyser;
 import de.l3s.icrawl.crawler.analysis.ResourceAnalyserFactory;
 import de.l3s.icrawl.crawler.analysis.ResourceAnalyser.WeightingMethod;
+import de.l3s.icrawl.crawler.io.ArchiveFetcher;
+import de.l3s.icrawl.crawler.io.CaptureFilter;
 import de.l3s.icrawl.crawler.io.CsvStorer;
 import de.l3s.icrawl.crawler.io.ResultStorer;
 import de.l3s.icrawl.crawler.io.ZipFileStorer;
 import de.l3s.icrawl.crawler.scheduling.NumberOfUrlsStoppingCriterion;
 import de.l3s.icrawl.crawler.ui.UiConfig;
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+import de.l3s.icrawl.snapshots.ArchivedUrlFilter;
+import de.l3s.icrawl.snapshots.AsyncHBaseSnapshotsLocator;
+import de.l3s.icrawl.snapshots.HBaseSnapshotsLocator;
+import de.l3s.icrawl.snapshots.HdfsSnapshotReader;
+import de.l3s.icrawl.snapshots.MappedSnapshotReader;
+import de.l3s.icrawl.snapshots.PrefetchingSnapshotsLocator;
+import de.l3s.icrawl.snapshots.RangeCoalescer;
+import de.l3s.icrawl.snapshots.SnapshotReader;
+import de.l3s.icrawl.snapshots.SnapshotsLocator;
 
 @Configuration
 @EnableAutoConfiguration(exclude = { HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class })
@@ -99,12 +111,78 @@ public class ArchiveCrawler implements ApplicationListener<EmbeddedServletContai
 
     private static final Logger logger = LoggerFactory.getLogger(ArchiveCrawler.class);
 
-    @Value("${cdxPath}")
-    String indexPath;
-
     @Value("${warcRoot}")
     String dataPath;
 
+    /** optional filter of archived URLs, see ArchivedUrlFilterCreator */
+    @Value("${archivedUrlFilter:}")
+    String archivedUrlFilterPath;
+
+    /** 'hdfs' or 'local' for memory mapped files on the local file system */
+    @Value("${warcReader:hdfs}")
+    String warcReader;
+
+    /**
+     * 'hbase' for one lookup per request, 'async' to batch the lookups of all
+     * threads into multi-gets, or 'prefetching' to load the index range of a
+     * host on its first lookup. With 'async' the lookups of the URLs read
+     * ahead (readAheadUrls) are started without blocking.
+     */
+    @Value("${snapshotsLocator:hbase}")
+    String snapshotsLocator;
+
+    @Value("${lookupThreads:4}")
+    int lookupThreads;
+
+    @Value("${lookupBatchSize:100}")
+    int lookupBatchSize;
+
+    @Value("${maxPendingLookups:10000}")
+    int maxPendingLookups;
+
+    /** captures of all prefetched hosts kept in memory */
+    @Value("${prefetchMaxCaptures:1000000}")
+    long prefetchMaxCaptures;
+
+    /** hosts with more URLs are only prefetched partially */
+    @Value("${prefetchMaxHostRows:10000}")
+    int prefetchMaxHostRows;
+
+    @Value("${maxOpenWarcFiles:256}")
+    int maxOpenWarcFiles;
+
+    /** records of the same WARC file at most this far apart are read together */
+    @Value("${coalesceMaxGap:65536}")
+    long coalesceMaxGap;
+
+    @Value("${coalesceMaxReadSize:8388608}")
+    long coalesceMaxReadSize;
+
+    /** larger record payloads are truncated */
+    @Value("${maxPayloadSize:10485760}")
+    int maxPayloadSize;
+
+    /** only captures with these MIME types are fetched, empty for all types */
+    @Value("${fetchMimeTypes:text/html,application/xhtml+xml}")
+    String fetchMimeTypes;
+
+    /** only captures with these HTTP status codes are fetched, empty for all codes */
+    @Value("${fetchStatusCodes:200}")
+    String fetchStatusCodes;
+
+    /**
+     * URLs per thread whose snapshots are fetched while the current one is
+     * analysed. They are taken from the frontier before the outlinks of the
+     * current page are added, so this is off until the effect on the crawl
+     * order has been measured.
+     */
+    @Value("${readAheadUrls:0}")
+    int readAheadUrls;
+
+    /** size of the snapshots fetched ahead by all threads together */
+    @Value("${readAheadMaxBytes:67108864}")
+    long readAheadMaxBytes;
+
     @Value("${numThreads:10}")
     int numThreads;
 
@@ -112,6 +190,15 @@ public class ArchiveCrawler implements ApplicationListener<EmbeddedServletContai
     float timeRelevanceThreshold;
     @Value("${docSimilarityWeight:0.5}")
     float docSimilarityWeight;
+    /** analyse pages with the streaming tokenizer instead of a DOM */
+    @Value("${streamingAnalysis:false}")
+    boolean streamingAnalysis;
+    /**
+     * characters sampled from long texts for language detection, 0 for the full
+     * text (off until measured with LanguageSamplingComparison)
+     */
+    @Value("${languageSampleLength:0}")
+    int languageSampleLength;
 
     private int serverPort;
 
@@ -124,7 +211,8 @@ public class ArchiveCrawler implements ApplicationListener<EmbeddedServletContai
 
     @Bean
     ResourceAnalyserFactory raf() {
-        return new ResourceAnalyser.Factory(metrics(), timeRelevanceThreshold, docSimilarityWeight);
+        return new ResourceAnalyser.Factory(metrics(), timeRelevanceThreshold, docSimilarityWeight,
+            streamingAnalysis, languageSampleLength);
     }
 
     @Inject
@@ -158,9 +246,52 @@ public class ArchiveCrawler implements ApplicationListener<EmbeddedServletContai
         return HBaseConfiguration.create(new YarnConfiguration());
     }
 
+    @Bean
+    ArchiveFetcher.Factory fetcherFactory() throws IOException {
+        ArchivedUrlFilter archivedUrls = null;
+        if (!archivedUrlFilterPath.isEmpty()) {
+            archivedUrls = ArchivedUrlFilter.open(new File(archivedUrlFilterPath));
+            logger.info("Using archived URL filter {}", archivedUrlFilterPath);
+        }
+        return new ArchiveFetcher.Factory(snapshotsLocator(), dataPath, metrics(), archivedUrls, snapshotReader(),
+            new RangeCoalescer(coalesceMaxGap, coalesceMaxReadSize), maxPayloadSize,
+            CaptureFilter.parse(fetchMimeTypes, fetchStatusCodes, UrlFilter.ONLY_HTTP, metrics()))
+                .withReadAhead(readAheadUrls, readAheadMaxBytes);
+    }
+
+    private SnapshotsLocator snapshotsLocator() throws IOException {
+        switch (snapshotsLocator) {
+        case "hbase":
+            return new HBaseSnapshotsLocator(conf(), metrics());
+        case "async":
+            logger.info("Batching index lookups with {} threads", lookupThreads);
+            return new AsyncHBaseSnapshotsLocator(conf(), metrics(), lookupThreads, lookupBatchSize,
+                maxPendingLookups);
+        case "prefetching":
+            logger.info("Prefetching index ranges of hosts with {} threads", lookupThreads);
+            return new PrefetchingSnapshotsLocator(conf(), metrics(), prefetchMaxCaptures, prefetchMaxHostRows,
+                lookupThreads);
+        default:
+            throw new IllegalArgumentException("Unknown snapshotsLocator '" + snapshotsLocator
+                    + "', expected 'hbase', 'async' or 'prefetching'");
+        }
+    }
+
+    private SnapshotReader snapshotReader() throws IOException {
+        switch (warcReader) {
+        case "hdfs":
+            return new HdfsSnapshotReader(conf(), metrics(), maxOpenWarcFiles);
+        case "local":
+            logger.info("Reading local WARC files from {}", dataPath);
+            return new MappedSnapshotReader(maxOpenWarcFiles, metrics());
+        default:
+            throw new IllegalArgumentException("Unknown warcReader '" + warcReader + "', expected 'hdfs' or 'local'");
+        }
+    }
+
     @Bean
     Crawler crawler() throws IOException {
-        return new Crawler(conf(), indexPath, dataPath, raf(), storerConfig.storerFactory(conf()), metrics(), numThreads);
+        return new Crawler(fetcherFactory(), raf(), storerConfig.storerFactory(conf()), metrics(), numThreads);
     }
 
     @Bean
@@ -5,6 +5,8 @@ import java.util.Objects;
 
 import com.google.common.base.Preconditions;
 
+import de.l3s.icrawl.crawler.urls.NormalizedUrl;
+
 public class CrawlUrl {
     public enum Path {
         SEED('S'), LINK('L');
@@ -21,18 +23,30 @@ public class CrawlUrl {
     }
 
     private final String url;
+    private final String surt;
     private final String path;
     private final float priority;
     private final String referrer;
     private final ZonedDateTime refererCrawlTime;
 
     public CrawlUrl(String url, String path, float priority, String referrer, ZonedDateTime refererCrawlTime) {
+        this(url, null, path, priority, referrer, refererCrawlTime);
+    }
+
+    /**
+     * @param surt
+     *            the SURT key of the URL in the archive index or null if it
+     *            has not been computed yet
+     */
+    public CrawlUrl(String url, String surt, String path, float priority, String referrer,
+            ZonedDateTime refererCrawlTime) {
         Objects.requireNonNull(url);
         Preconditions.checkArgument(path != null && !path.isEmpty(), "Invalid path: '%s'", path);
         Preconditions.checkArgument(0 <= priority && priority <= 1, "Invalid priority, %s not in [0,1]", priority);
         Preconditions.checkArgument((referrer == null) == (refererCrawlTime == null),
             "Referrer and crawl time must be give together or not at all");
         this.url = url;
+        this.surt = surt;
         this.path = path;
         this.priority = priority;
         this.referrer = referrer;
@@ -47,10 +61,22 @@ public class CrawlUrl {
         return new CrawlUrl(url, this.path + Path.LINK.getName(), priority, this.url, crawlTime);
     }
 
+    public CrawlUrl outlink(NormalizedUrl url, float priority, ZonedDateTime crawlTime) {
+        return new CrawlUrl(url.getUrl(), url.getSurt(), this.path + Path.LINK.getName(), priority, this.url,
+            crawlTime);
+    }
+
     public String getUrl() {
         return url;
     }
 
+    /**
+     * @return the SURT key of the URL, or null if it is not known
+     */
+    public String getSurt() {
+        return surt;
+    }
+
     public String getPath() {
         return path;
     }
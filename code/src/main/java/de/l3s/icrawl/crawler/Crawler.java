@@ -15,7 +15,6 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +27,7 @@ import de.l3s.icrawl.crawler.analysis.ResourceAnalyserFactory;
 import de.l3s.icrawl.crawler.frontier.FileBasedFrontier;
 import de.l3s.icrawl.crawler.frontier.Frontier;
 import de.l3s.icrawl.crawler.io.ArchiveFetcher;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher;
 import de.l3s.icrawl.crawler.io.ResultStorer;
 import de.l3s.icrawl.crawler.scheduling.StoppingCriterion;
 
@@ -46,20 +46,16 @@ public class Crawler {
     private final MetricRegistry metrics;
     private final int numThreads;
     private final ResourceAnalyserFactory analyserFactory;
-    private final String indexPath;
-    private final String dataPath;
+    private final ArchiveFetcher.Factory fetcherFactory;
     private final ResultStorer.Factory storerFactory;
     private final ExecutorService threadPool;
     private List<CrawlerThread> threads;
     private ArchiveCrawlSpecification spec;
     private List<Future<?>> threadFutures;
-    private final Configuration conf;
 
-    public Crawler(Configuration conf, String indexPath, String dataPath, ResourceAnalyserFactory analyserFactory,
+    public Crawler(ArchiveFetcher.Factory fetcherFactory, ResourceAnalyserFactory analyserFactory,
             ResultStorer.Factory storerFactory, MetricRegistry metrics, int numThreads) throws IOException {
-        this.conf = conf;
-        this.indexPath = indexPath;
-        this.dataPath = dataPath;
+        this.fetcherFactory = fetcherFactory;
         this.analyserFactory = analyserFactory;
         this.storerFactory = storerFactory;
         this.metrics = metrics;
@@ -96,7 +92,7 @@ public class Crawler {
             CountDownLatch barrier = new CountDownLatch(numThreads);
             for (int i = 0; i < numThreads; i++) {
                 ResourceAnalyser analyser = analyserFactory.get(spec, method);
-                ArchiveFetcher fetcher = new ArchiveFetcher(conf, indexPath, dataPath, metrics, snapshotsToAnalyze);
+                ReadAheadFetcher fetcher = fetcherFactory.getReadAhead(snapshotsToAnalyze);
                 threads.add(new CrawlerThread(queue, fetcher, storer, analyser, metrics, spec, barrier, stoppingCriterion,
                     relevanceThreshold));
             }
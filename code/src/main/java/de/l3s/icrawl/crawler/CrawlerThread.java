@@ -6,7 +6,6 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -21,7 +20,8 @@ import com.google.common.collect.Ordering;
 import de.l3s.icrawl.crawler.analysis.ResourceAnalyser;
 import de.l3s.icrawl.crawler.analysis.ResourceAnalyser.Result;
 import de.l3s.icrawl.crawler.frontier.Frontier;
-import de.l3s.icrawl.crawler.io.ArchiveFetcher;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher.Pending;
 import de.l3s.icrawl.crawler.io.ResultStorer;
 import de.l3s.icrawl.crawler.scheduling.StoppingCriterion;
 import de.l3s.icrawl.snapshots.Snapshot;
@@ -31,7 +31,7 @@ import static com.codahale.metrics.MetricRegistry.name;
 public class CrawlerThread implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(CrawlerThread.class);
     private final Frontier frontier;
-    private final ArchiveFetcher fetcher;
+    private final ReadAheadFetcher fetcher;
     private final ResourceAnalyser analyser;
     private final ResultStorer storer;
     private final double relevanceThreshold;
@@ -44,7 +44,7 @@ public class CrawlerThread implements Runnable {
     private final CountDownLatch barrier;
     private final StoppingCriterion stoppingCriterion;
 
-    public CrawlerThread(Frontier frontier, ArchiveFetcher fetcher, ResultStorer storer, ResourceAnalyser analyser,
+    public CrawlerThread(Frontier frontier, ReadAheadFetcher fetcher, ResultStorer storer, ResourceAnalyser analyser,
             MetricRegistry metrics, ArchiveCrawlSpecification spec, CountDownLatch barrier,
             StoppingCriterion stoppingCriterion, double relevanceThreshold) {
         this.frontier = frontier;
@@ -74,8 +74,8 @@ public class CrawlerThread implements Runnable {
                     logger.info("Stopping because of external stop");
                     break;
                 }
-                Optional<CrawlUrl> url = frontier.pop();
-                if (!url.isPresent()) {
+                Pending url = fetcher.next(frontier, spec.getReferenceTime());
+                if (url == null) {
                     try {
                         stoppingCriterion.updateEmptyQueue();
                         TimeUnit.MILLISECONDS.sleep(10);
@@ -85,72 +85,94 @@ public class CrawlerThread implements Runnable {
                         break;
                     }
                 }
-                fetch(url.get());
+                fetch(url);
             }
-            fetcher.close();
         } catch (Throwable t) {
             logger.info("Very unexpected exception", t);
         } finally {
+            try {
+                fetcher.close(frontier);
+            } catch (IOException | RuntimeException e) {
+                logger.info("Could not return prefetched URLs to the frontier ", e);
+            }
             logger.info("Crawler thread finished");
             barrier.countDown();
         }
     }
 
-    private void fetch(CrawlUrl crawlUrl) {
+    private void fetch(Pending url) {
+        CrawlUrl crawlUrl = url.getUrl();
         try {
             crawlRate.mark();
-            List<Snapshot> snapshots = fetcher.get(crawlUrl, spec.getReferenceTime());
-            if (snapshots.isEmpty()) {
-                storer.storeNotFound(crawlUrl);
-                notFound.inc();
-                stoppingCriterion.updateFailure();
-            } else {
-                Result bestResult = null;
-                Snapshot bestSnapshot = null;
-                double minRelevance = Double.POSITIVE_INFINITY;
-                double maxRelevance = Double.NEGATIVE_INFINITY;
-                ZonedDateTime earliestDate = ZonedDateTime.now();
-                ZonedDateTime latestDate = ZonedDateTime.ofInstant(Instant.ofEpochMilli(0L), ZoneOffset.UTC);
-
+            List<Snapshot> snapshots = fetcher.get(url, spec.getReferenceTime());
+            try {
+                process(crawlUrl, snapshots);
+            } finally {
+                // the storer is done with the best snapshot, the others are already released
                 for (Snapshot snapshot : snapshots) {
-                    Result result = analyser.analyse(snapshot, crawlUrl);
-                    double relevance = result.getRelevance();
-                    if (bestResult == null || bestResult.getRelevance() < relevance) {
-                        bestResult = result;
-                        bestSnapshot = snapshot;
-                    }
+                    snapshot.close();
+                }
+            }
+        } catch (IOException e) {
+            logger.info("Exception while fetching '{}', skipping ", crawlUrl, e);
+        } catch (Exception e) {
+            logger.info("Unexpected exception ", e);
+        }
+    }
 
-                    if (relevance >= 0) {
-                        minRelevance = Double.min(minRelevance, relevance);
-                        maxRelevance = Double.max(maxRelevance, relevance);
-                    }
-                    if (result.getModifiedDate() != null) {
-                        earliestDate = Ordering.natural().min(earliestDate, result.getModifiedDate());
-                        latestDate = Ordering.natural().max(latestDate, result.getModifiedDate());
+    private void process(CrawlUrl crawlUrl, List<Snapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            storer.storeNotFound(crawlUrl);
+            notFound.inc();
+            stoppingCriterion.updateFailure();
+        } else {
+            Result bestResult = null;
+            Snapshot bestSnapshot = null;
+            double minRelevance = Double.POSITIVE_INFINITY;
+            double maxRelevance = Double.NEGATIVE_INFINITY;
+            ZonedDateTime earliestDate = ZonedDateTime.now();
+            ZonedDateTime latestDate = ZonedDateTime.ofInstant(Instant.ofEpochMilli(0L), ZoneOffset.UTC);
+
+            for (Snapshot snapshot : snapshots) {
+                Result result = analyser.analyse(snapshot, crawlUrl);
+                double relevance = result.getRelevance();
+                // only the best snapshot keeps its raw payload for the storer
+                if (bestResult == null || bestResult.getRelevance() < relevance) {
+                    if (bestSnapshot != null) {
+                        bestSnapshot.close();
                     }
+                    bestResult = result;
+                    bestSnapshot = snapshot;
+                } else {
+                    snapshot.close();
                 }
-                if (stopped) {
-                    return;
+
+                if (relevance >= 0) {
+                    minRelevance = Double.min(minRelevance, relevance);
+                    maxRelevance = Double.max(maxRelevance, relevance);
+                }
+                if (result.getModifiedDate() != null) {
+                    earliestDate = Ordering.natural().min(earliestDate, result.getModifiedDate());
+                    latestDate = Ordering.natural().max(latestDate, result.getModifiedDate());
                 }
+            }
+            if (stopped) {
+                return;
+            }
 
-                assert (bestResult != null);
+            assert (bestResult != null);
 
-                if (bestResult.getRelevance() < relevanceThreshold) {
-                    irrelevant.inc();
-                    stoppingCriterion.updateIrrelevant(bestResult.getRelevance());
-                } else {
-                    frontier.push(bestResult.getOutlinks());
-                    storer.store(new CrawledResource(crawlUrl, bestSnapshot, bestResult.getRelevance(),
-                        bestResult.getModifiedDate(), Duration.between(earliestDate, latestDate), minRelevance,
-                        maxRelevance));
-                    retrieved.inc();
-                    stoppingCriterion.updateSuccess(bestResult.getRelevance());
-                }
+            if (bestResult.getRelevance() < relevanceThreshold) {
+                irrelevant.inc();
+                stoppingCriterion.updateIrrelevant(bestResult.getRelevance());
+            } else {
+                frontier.push(bestResult.getOutlinks());
+                storer.store(new CrawledResource(crawlUrl, bestSnapshot, bestResult.getRelevance(),
+                    bestResult.getModifiedDate(), Duration.between(earliestDate, latestDate), minRelevance,
+                    maxRelevance));
+                retrieved.inc();
+                stoppingCriterion.updateSuccess(bestResult.getRelevance());
             }
-        } catch (IOException e) {
-            logger.info("Exception while fetching '{}', skipping ", crawlUrl, e);
-        } catch (Exception e) {
-            logger.info("Unexpected exception ", e);
         }
     }
 
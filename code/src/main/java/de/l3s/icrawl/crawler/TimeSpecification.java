@@ -22,6 +22,7 @@ import com.google.common.collect.Ordering;
 import com.google.common.primitives.Doubles;
 
 import de.l3s.icrawl.snapshots.SnaphotLocation;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
 
 public class TimeSpecification implements Comparator<SnaphotLocation> {
     private static final double DEFAULT_SHAPE = 1.0;
@@ -29,6 +30,9 @@ public class TimeSpecification implements Comparator<SnaphotLocation> {
     private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
     private final ZonedDateTime start;
     private final ZonedDateTime end;
+    private final long startSeconds;
+    private final long endSeconds;
+    private final long dayAfterEndSeconds;
     @JsonProperty
     private final Period beforeFuzziness;
     private final long beforeFuzzinessDuration;
@@ -43,6 +47,9 @@ public class TimeSpecification implements Comparator<SnaphotLocation> {
             @JsonProperty("afterFuzziness") Period afterFuzziness) {
         this.start = Objects.requireNonNull(start).atStartOfDay(ZoneOffset.UTC);
         this.end = Objects.requireNonNull(end).atStartOfDay(ZoneOffset.UTC);
+        this.startSeconds = this.start.toEpochSecond();
+        this.endSeconds = this.end.toEpochSecond();
+        this.dayAfterEndSeconds = this.end.plusDays(1).toEpochSecond();
         this.beforeFuzziness = Objects.requireNonNull(beforeFuzziness);
         this.afterFuzziness = Objects.requireNonNull(afterFuzziness);
         Instant now = Instant.now();
@@ -75,6 +82,22 @@ public class TimeSpecification implements Comparator<SnaphotLocation> {
         }
     }
 
+    /**
+     * Same as {@link #getRelevance(ZonedDateTime)}, for a time given as
+     * seconds since the epoch.
+     */
+    public double getRelevance(long epochSeconds) {
+        if (startSeconds < epochSeconds && endSeconds > epochSeconds) {
+            return 1.0;
+        } else if (startSeconds > epochSeconds) {
+            long diff = (startSeconds - epochSeconds) * 1000;
+            return weibull(diff, beforeFuzzinessDuration, DEFAULT_SHAPE);
+        } else {
+            long diff = (epochSeconds - dayAfterEndSeconds) * 1000;
+            return weibull(diff, afterFuzzinessDuration, DEFAULT_SHAPE);
+        }
+    }
+
     public double getRelevanceExp(ZonedDateTime t) {
         if (start.isBefore(t) && end.isAfter(t)) {
             return 1.0;
@@ -113,6 +136,55 @@ public class TimeSpecification implements Comparator<SnaphotLocation> {
         return Ordering.from(this).reverse().leastOf(locations, maxResults);
     }
 
+    /**
+     * Select locations in the same order as
+     * {@link #findBest(Iterable, int)}, but working directly on the crawl
+     * timestamps of a compact location list.
+     */
+    public SnapshotLocations findBest(SnapshotLocations locations, int maxResults) {
+        int size = locations.size();
+        if (size < maxResults) {
+            return locations;
+        }
+        double[] relevance = new double[size];
+        for (int i = 0; i < size; i++) {
+            long crawlTime = locations.getCrawlTimeSeconds(i);
+            relevance[i] = crawlTime != SnapshotLocations.NO_CRAWL_TIME ? getRelevance(crawlTime) : 0.0;
+        }
+        // insertion into a bounded sorted buffer, maxResults is small
+        int[] selected = new int[maxResults];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int pos = count;
+            while (pos > 0 && compare(locations, relevance, i, selected[pos - 1]) > 0) {
+                pos--;
+            }
+            if (pos < maxResults) {
+                int moved = Math.min(count, maxResults - 1) - pos;
+                System.arraycopy(selected, pos, selected, pos + 1, moved);
+                selected[pos] = i;
+                count = Math.min(count + 1, maxResults);
+            }
+        }
+        return locations.select(selected, count);
+    }
+
+    /**
+     * Primitive equivalent of {@link #compare(SnaphotLocation, SnaphotLocation)}.
+     */
+    private static int compare(SnapshotLocations locations, double[] relevance, int a, int b) {
+        boolean aMissing = locations.getCrawlTimeSeconds(a) == SnapshotLocations.NO_CRAWL_TIME;
+        boolean bMissing = locations.getCrawlTimeSeconds(b) == SnapshotLocations.NO_CRAWL_TIME;
+        if (aMissing && bMissing) {
+            return 0;
+        } else if (aMissing) {
+            return -1;
+        } else if (bMissing) {
+            return 1;
+        }
+        return Doubles.compare(relevance[b], relevance[a]);
+    }
+
     @Override
     public int compare(SnaphotLocation a, SnaphotLocation b) {
         if (a.getCrawlTime() == null && b.getCrawlTime() == null) {
@@ -9,9 +9,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
 
+import org.archive.url.WaybackURLKeyMaker;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.openimaj.text.nlp.language.LanguageDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,23 +23,29 @@ import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.io.Resources;
 
 import de.l3s.icrawl.contentanalysis.DocumentVectorSimilarity;
 import de.l3s.icrawl.contentanalysis.LanguageModels;
+import de.l3s.icrawl.contentanalysis.PageScan;
+import de.l3s.icrawl.contentanalysis.StreamingPageScan;
 import de.l3s.icrawl.contentanalysis.WebPageDateExtractor;
 import de.l3s.icrawl.contentanalysis.WebPageDateExtractor.WebPageDate;
 import de.l3s.icrawl.crawler.ArchiveCrawlSpecification;
 import de.l3s.icrawl.crawler.ArchiveCrawler;
 import de.l3s.icrawl.crawler.CrawlUrl;
 import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.crawler.urls.CachingUrlProcessor;
+import de.l3s.icrawl.crawler.urls.NormalizedUrl;
 import de.l3s.icrawl.crawler.urls.RegexUrlNormalizer;
 import de.l3s.icrawl.crawler.urls.UrlCanonicalizerNormalizer;
 import de.l3s.icrawl.crawler.urls.UrlFilter;
 import de.l3s.icrawl.crawler.urls.UrlNormalizer;
 import de.l3s.icrawl.crawler.urls.UrlNormalizers;
+import de.l3s.icrawl.crawler.urls.UrlProcessor;
+import de.l3s.icrawl.snapshots.CachingUrlKeyMaker;
 import de.l3s.icrawl.snapshots.Snapshot;
-import de.l3s.icrawl.util.TextExtractor;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -84,28 +90,54 @@ public class ResourceAnalyser {
     }
 
     private static final Logger logger = LoggerFactory.getLogger(ResourceAnalyser.class);
+    /**
+     * Difference of the log probabilities of the two most likely languages of
+     * a sample that is considered decisive
+     */
+    static final double LANGUAGE_MIN_MARGIN = 50.0;
+    /** number of outlinks whose normalization result is cached */
+    private static final long OUTLINK_CACHE_SIZE = 200_000;
 
     public static class Factory implements ResourceAnalyserFactory {
 
         private final MetricRegistry metrics;
         private final float timeRelevanceThreshold;
         private final float docSimilarityWeight;
+        private final boolean streamingParser;
+        private final int languageSampleLength;
+        private UrlProcessor urlProcessor;
 
-        public Factory(MetricRegistry metrics, float timeRelevanceTreshold, float docSimilarityWeight) {
+        /**
+         * @param streamingParser
+         *            analyse pages with {@link StreamingPageScan} instead of
+         *            parsing them into a DOM
+         * @param languageSampleLength
+         *            number of characters sampled from long texts for language
+         *            detection, 0 to always classify the full text
+         */
+        public Factory(MetricRegistry metrics, float timeRelevanceTreshold, float docSimilarityWeight,
+                boolean streamingParser, int languageSampleLength) {
             this.metrics = metrics;
             timeRelevanceThreshold = timeRelevanceTreshold;
             this.docSimilarityWeight = docSimilarityWeight;
+            this.streamingParser = streamingParser;
+            this.languageSampleLength = languageSampleLength;
         }
 
         @Override
-        public ResourceAnalyser get(ArchiveCrawlSpecification spec, WeightingMethod method) throws IOException {
-            return new ResourceAnalyser(spec, method, metrics, timeRelevanceThreshold, docSimilarityWeight);
+        public synchronized ResourceAnalyser get(ArchiveCrawlSpecification spec, WeightingMethod method)
+                throws IOException {
+            // the normalization does not depend on the crawl, so all analysers share the cache
+            if (urlProcessor == null) {
+                urlProcessor = createUrlProcessor(metrics);
+            }
+            return new ResourceAnalyser(spec, method, metrics, timeRelevanceThreshold, docSimilarityWeight,
+                streamingParser, languageSampleLength, urlProcessor);
         }
 
     }
 
-    private final UrlFilter urlFilter;
-    private final UrlNormalizer urlNormalizer;
+    private final UrlProcessor urlProcessor;
     private final Histogram outlinkCount;
     private final Counter unknowns;
     private final Counter empty;
@@ -119,13 +151,18 @@ public class ResourceAnalyser {
     private final Timer dateExtractionTime;
     private final float timeRelevanceThreshold;
     private final float docSimilarityWeight;
+    private final boolean streamingParser;
+    private final int languageSampleLength;
 
     public ResourceAnalyser(ArchiveCrawlSpecification spec, WeightingMethod method, MetricRegistry metrics,
-            float timeRelevanceThreshold, float docSimilarityWeight) throws IOException {
+            float timeRelevanceThreshold, float docSimilarityWeight, boolean streamingParser,
+            int languageSampleLength, UrlProcessor urlProcessor) throws IOException {
         Preconditions.checkArgument(0 <= docSimilarityWeight && docSimilarityWeight <= 1.0, "docSimilarityWeight");
         this.method = method;
         this.docSimilarityWeight = docSimilarityWeight;
         this.timeRelevanceThreshold = timeRelevanceThreshold;
+        this.streamingParser = streamingParser;
+        this.languageSampleLength = languageSampleLength;
         Map<String, Double> dictionary;
         try (InputStream is = new GZIPInputStream(Resources.getResource(ArchiveCrawler.IDF_DICTIONARY_DE).openStream())) {
             dictionary = LanguageModels.readIdfDictionary(is);
@@ -134,9 +171,7 @@ public class ResourceAnalyser {
         similarity = DocumentVectorSimilarity.fromVectors(spec.getReferenceVectors(), spec.getKeywords(),
             spec.getDefaultLanguage(), models, spec.getCorrectionFactors());
         referenceTime = spec.getReferenceTime();
-        urlFilter = UrlFilter.ONLY_HTTP;
-        urlNormalizer = new UrlNormalizers(new UrlCanonicalizerNormalizer(),
-            new RegexUrlNormalizer(Resources.getResource("default-regex-normalizers.xml")));
+        this.urlProcessor = urlProcessor;
         outlinkCount = metrics.histogram(name(getClass(), "numOutlinks"));
         unknowns = metrics.counter(name(getClass(), "unknownType"));
         empty = metrics.counter(name(getClass(), "empty"));
@@ -146,22 +181,42 @@ public class ResourceAnalyser {
         dateExtractionTime = metrics.timer(name(getClass(), "dateExtractionTime"));
     }
 
+    /** The outlink processor of the crawler, with a cache shared by all threads */
+    public static UrlProcessor createUrlProcessor(MetricRegistry metrics) throws IOException {
+        UrlNormalizer urlNormalizer = new UrlNormalizers(new UrlCanonicalizerNormalizer(),
+            new RegexUrlNormalizer(Resources.getResource("default-regex-normalizers.xml")));
+        return new CachingUrlProcessor(urlNormalizer, UrlFilter.ONLY_HTTP,
+            new CachingUrlKeyMaker(new WaybackURLKeyMaker(), 100_000), OUTLINK_CACHE_SIZE, metrics);
+    }
+
     public Result analyse(Snapshot resource, CrawlUrl url) {
         Object content = resource.getContent();
         if (content instanceof String) {
+            PageScan page = null;
+            StreamingPageScan streamingPage = null;
+            String text;
             Timer.Context timer = parseTime.time();
-            Document doc = Jsoup.parse((String) content, url.getUrl());
-            timer.stop();
-            timer = textExtractTime.time();
-            String text = TextExtractor.extractText(doc);
-            timer.stop();
+            if (streamingParser) {
+                // tokenizing and extraction are a single step without DOM
+                streamingPage = StreamingPageScan.scan((String) content, url.getUrl());
+                timer.stop();
+                text = streamingPage.getText();
+            } else {
+                Document doc = Jsoup.parse((String) content, url.getUrl());
+                timer.stop();
+                timer = textExtractTime.time();
+                // text, links and date candidates are collected in one traversal
+                page = PageScan.scan(doc);
+                text = page.getText();
+                timer.stop();
+            }
             if (text.trim().isEmpty()) {
                 logger.debug("No content for URL '{}", url);
                 empty.inc();
                 return Result.EMPTY;
             }
             timer = analysisTime.time();
-            Locale language = languageDetector.classify(text).getLocale();
+            Locale language = detectLanguage(text);
             float docSimilarity = (float) similarity.getSimilarity(language, text);
             timer.stop();
 
@@ -169,7 +224,10 @@ public class ResourceAnalyser {
             WebPageDate modifiedDate;
             try (Timer.Context t = dateExtractionTime.time()) {
                 long crawlTimeMs = resource.getCrawlTime().toInstant().toEpochMilli();
-                modifiedDate = WebPageDateExtractor.getModifiedDate(resource.getOriginalUrl(), doc, crawlTimeMs, null);
+                String originalUrl = resource.getOriginalUrl();
+                modifiedDate = streamingPage != null
+                        ? WebPageDateExtractor.getModifiedDate(originalUrl, streamingPage, crawlTimeMs, null)
+                        : WebPageDateExtractor.getModifiedDate(originalUrl, page, crawlTimeMs, null);
                 if (modifiedDate != null && modifiedDate.getDate() != null) {
                     if (method == WeightingMethod.TIME || method == WeightingMethod.CONTENT_AND_TIME) {
                         timeRelevance = (float) referenceTime.getRelevance(modifiedDate.getDate());
@@ -185,16 +243,18 @@ public class ResourceAnalyser {
             float outlinkScore = outlinkScore(docSimilarity, timeRelevance);
 
             ImmutableMultiset.Builder<CrawlUrl> outlinks = ImmutableMultiset.builder();
-            for (Element link : doc.select("a[href]")) {
-                String docUrl = link.absUrl("href");
+            Iterable<String> links = streamingPage != null ? streamingPage.getLinks()
+                    : Iterables.transform(page.getLinks(), link -> link.absUrl("href"));
+            links = Iterables.filter(links, docUrl -> {
                 if (docUrl.trim().isEmpty() || !docUrl.startsWith("http")) {
                     logger.trace("Skipping URL '{}'", docUrl);
-                    continue;
-                }
-                String outUrl = urlNormalizer.normalize(docUrl);
-                if (urlFilter.apply(outUrl)) {
-                    outlinks.add(url.outlink(outUrl, outlinkScore, resource.getCrawlTime()));
+                    return false;
                 }
+                return true;
+            });
+            // navigation links repeat, so duplicates are removed before normalization
+            for (NormalizedUrl outUrl : urlProcessor.processAll(links)) {
+                outlinks.add(url.outlink(outUrl, outlinkScore, resource.getCrawlTime()));
             }
             Set<CrawlUrl> outUrls = outlinks.build().elementSet();
             outlinkCount.update(outUrls.size());
@@ -208,6 +268,14 @@ public class ResourceAnalyser {
         }
     }
 
+    private Locale detectLanguage(String text) {
+        if (languageSampleLength > 0) {
+            return languageDetector.classifySample(text, languageSampleLength, LANGUAGE_MIN_MARGIN).getLocale();
+        } else {
+            return languageDetector.classify(text).getLocale();
+        }
+    }
+
     private float outlinkScore(float docSimilarity, float timeRelevance) {
         switch (method) {
         case CONTENT:
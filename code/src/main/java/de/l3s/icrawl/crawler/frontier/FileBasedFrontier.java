@@ -76,6 +76,7 @@ public class FileBasedFrontier extends BaseFrontier implements Frontier {
             RandomAccessFile file = files[queueIndex];
             file.seek(writeIndices[queueIndex]);
             file.writeUTF(url.getUrl());
+            file.writeUTF(url.getSurt() != null ? url.getSurt() : "");
             file.writeUTF(url.getPath());
             file.writeFloat(url.getPriority());
             if (url.getReferrer() != null) {
@@ -105,6 +106,7 @@ public class FileBasedFrontier extends BaseFrontier implements Frontier {
             RandomAccessFile file = files[queueIndex];
             file.seek(readIndices[queueIndex]);
             String url = file.readUTF();
+            String surt = file.readUTF();
             String path = file.readUTF();
             float priority = file.readFloat();
             String referrer;
@@ -120,7 +122,7 @@ public class FileBasedFrontier extends BaseFrontier implements Frontier {
             if (isQueueEmpty(queueIndex)) {
                 selector.disable(queueIndex);
             }
-            return Optional.of(new CrawlUrl(url, path, priority, referrer, referrerCrawlTime));
+            return Optional.of(new CrawlUrl(url, surt.isEmpty() ? null : surt, path, priority, referrer, referrerCrawlTime));
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -2,66 +2,292 @@ package de.l3s.icrawl.crawler.io;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.hadoop.conf.Configuration;
 import org.archive.io.ArchiveReader;
 import org.archive.io.ArchiveRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
 import de.l3s.icrawl.crawler.CrawlUrl;
 import de.l3s.icrawl.crawler.TimeSpecification;
 import de.l3s.icrawl.snapshots.ArchiveRecordParser;
+import de.l3s.icrawl.snapshots.ArchivedUrlFilter;
+import de.l3s.icrawl.snapshots.AsyncSnapshotsLocator;
 import de.l3s.icrawl.snapshots.DirectoryPrefixResolver;
-import de.l3s.icrawl.snapshots.HBaseSnapshotsLocator;
-import de.l3s.icrawl.snapshots.HdfsSnapshotReader;
 import de.l3s.icrawl.snapshots.LocationResolver;
+import de.l3s.icrawl.snapshots.RangeCoalescer;
 import de.l3s.icrawl.snapshots.SnaphotLocation;
 import de.l3s.icrawl.snapshots.Snapshot;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
+import de.l3s.icrawl.snapshots.SnapshotReader;
 import de.l3s.icrawl.snapshots.SnapshotsLocator;
 
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.StreamSupport.stream;
+import static com.codahale.metrics.MetricRegistry.name;
 
-public class ArchiveFetcher implements Closeable {
+public class ArchiveFetcher {
     private static final Logger logger = LoggerFactory.getLogger(ArchiveFetcher.class);
+    /** lookup of a URL rejected by the archived URL filter */
+    private static final CompletableFuture<SnapshotLocations> NOT_ARCHIVED = CompletableFuture
+        .completedFuture(SnapshotLocations.empty());
+
+    /**
+     * Creates fetchers that share one locator and one reader, and with it the
+     * open WARC files.
+     */
+    public static class Factory implements Closeable {
+        private final SnapshotsLocator locator;
+        private final String dataPath;
+        private final MetricRegistry metrics;
+        private final ArchivedUrlFilter archivedUrls;
+        private final SnapshotReader reader;
+        private final RangeCoalescer coalescer;
+        private final int maxPayloadSize;
+        private final CaptureFilter captureFilter;
+        private int readAheadDepth = 0;
+        private long readAheadBytes = 0;
+        /** snapshots waiting in the read-ahead fetchers of all threads */
+        private final AtomicLong readAheadBuffered = new AtomicLong();
+
+        /**
+         * @param locator
+         *            index locator shared by all fetchers, closed with the
+         *            factory if it is {@link Closeable}
+         * @param archivedUrls
+         *            filter of archived URLs shared by all fetchers, may be
+         *            null
+         * @param reader
+         *            reader for the WARC files, closed with the factory if it
+         *            is {@link Closeable}
+         */
+        public Factory(SnapshotsLocator locator, String dataPath, MetricRegistry metrics,
+                ArchivedUrlFilter archivedUrls, SnapshotReader reader, RangeCoalescer coalescer, int maxPayloadSize,
+                CaptureFilter captureFilter) {
+            this.locator = locator;
+            this.dataPath = dataPath;
+            this.metrics = metrics;
+            this.archivedUrls = archivedUrls;
+            this.reader = reader;
+            this.coalescer = coalescer;
+            this.maxPayloadSize = maxPayloadSize;
+            this.captureFilter = captureFilter;
+        }
+
+        /**
+         * Fetch the given number of URLs ahead, while at most the given number
+         * of bytes of fetched snapshots are waiting in all fetchers of this
+         * factory together.
+         */
+        public Factory withReadAhead(int depth, long maxBufferedBytes) {
+            this.readAheadDepth = depth;
+            this.readAheadBytes = maxBufferedBytes;
+            return this;
+        }
+
+        /**
+         * Create a fetcher wrapped in a {@link ReadAheadFetcher} as configured
+         * by {@link #withReadAhead(int, long)}.
+         */
+        public ReadAheadFetcher getReadAhead(int versionsToCheck) throws IOException {
+            return new ReadAheadFetcher(get(versionsToCheck), readAheadDepth, readAheadBytes, readAheadBuffered,
+                metrics);
+        }
+
+        public ArchiveFetcher get(int versionsToCheck) throws IOException {
+            return new ArchiveFetcher(locator, new DirectoryPrefixResolver(dataPath),
+                reader, coalescer, new ArchiveRecordParser(metrics, maxPayloadSize), metrics, versionsToCheck,
+                archivedUrls, captureFilter);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (locator instanceof Closeable) {
+                ((Closeable) locator).close();
+            }
+            if (reader instanceof Closeable) {
+                ((Closeable) reader).close();
+            }
+        }
+    }
+
     private final SnapshotsLocator locator;
     private final LocationResolver locationResolver;
-    private final HdfsSnapshotReader reader;
-    private final ArchiveRecordParser recordParser = new ArchiveRecordParser();
+    private final SnapshotReader reader;
+    private final ArchiveRecordParser recordParser;
     private final int versionsToCheck;
+    private final RangeCoalescer coalescer;
+    private final ArchivedUrlFilter archivedUrls;
+    private final CaptureFilter captureFilter;
+    private final Meter filterRejected;
+    private final Meter filterPassed;
+    private final Meter filterFalsePositives;
 
-    public ArchiveFetcher(Configuration conf, String indexPath, String dataPath, MetricRegistry metrics,
-            int versionsToCheck) throws IOException {
+    public ArchiveFetcher(SnapshotsLocator locator, LocationResolver locationResolver, SnapshotReader reader,
+            RangeCoalescer coalescer, ArchiveRecordParser recordParser, MetricRegistry metrics, int versionsToCheck,
+            ArchivedUrlFilter archivedUrls, CaptureFilter captureFilter) {
+        this.locator = locator;
+        this.recordParser = recordParser;
+        this.locationResolver = locationResolver;
+        this.reader = reader;
+        this.coalescer = coalescer;
         this.versionsToCheck = versionsToCheck;
-        locator = new HBaseSnapshotsLocator(conf, metrics);
-        locationResolver = new DirectoryPrefixResolver(dataPath);
-        reader = new HdfsSnapshotReader(conf, metrics);
+        this.archivedUrls = archivedUrls;
+        this.captureFilter = captureFilter;
+        filterRejected = metrics.meter(name(getClass(), "archivedUrlFilter", "rejected"));
+        filterPassed = metrics.meter(name(getClass(), "archivedUrlFilter", "passed"));
+        filterFalsePositives = metrics.meter(name(getClass(), "archivedUrlFilter", "falsePositives"));
     }
 
     public List<Snapshot> get(CrawlUrl url, TimeSpecification referenceTime) throws IOException {
-        Iterable<SnaphotLocation> locations = locator.findLocations(url.getUrl());
-        locations = referenceTime.findBest(locations, versionsToCheck);
-        return stream(locations.spliterator(), false).map(location -> {
-            SnaphotLocation resolvedLocation = locationResolver.resolve(location);
-            try (ArchiveReader archiveReader = reader.open(resolvedLocation);
-                    ArchiveRecord record = archiveReader.get()) {
-                return recordParser.readSnapshot(record);
+        return get(url, null, referenceTime);
+    }
+
+    /**
+     * Start the index lookup of a URL without blocking, if the locator is an
+     * {@link AsyncSnapshotsLocator}.
+     *
+     * @return the lookup to pass to
+     *         {@link #get(CrawlUrl, CompletableFuture, TimeSpecification)}, or
+     *         null if the locator only supports blocking lookups
+     */
+    public CompletableFuture<SnapshotLocations> startLookup(CrawlUrl url) {
+        if (!(locator instanceof AsyncSnapshotsLocator)) {
+            return null;
+        }
+        if (!mightBeArchived(url)) {
+            return NOT_ARCHIVED;
+        }
+        AsyncSnapshotsLocator asyncLocator = (AsyncSnapshotsLocator) locator;
+        return url.getSurt() != null ? asyncLocator.findLocationsBySurtAsync(url.getSurt())
+                : asyncLocator.findLocationsAsync(url.getUrl());
+    }
+
+    /**
+     * Read the snapshots of a URL whose lookup was started with
+     * {@link #startLookup(CrawlUrl)}, a null lookup is done on the calling
+     * thread.
+     */
+    public List<Snapshot> get(CrawlUrl url, CompletableFuture<SnapshotLocations> lookup,
+            TimeSpecification referenceTime) throws IOException {
+        SnapshotLocations allLocations;
+        if (lookup == null) {
+            if (!mightBeArchived(url)) {
+                return Collections.emptyList();
+            }
+            allLocations = findLocations(url);
+        } else if (lookup == NOT_ARCHIVED) {
+            return Collections.emptyList();
+        } else {
+            allLocations = await(url, lookup);
+        }
+        if (isFiltered(url) && allLocations.isEmpty()) {
+            filterFalsePositives.mark();
+        }
+        // drop captures that can't be analysed before selecting the versions to read
+        SnapshotLocations locations = referenceTime.findBest(captureFilter.filter(allLocations), versionsToCheck);
+        List<SnaphotLocation> resolvedLocations = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            resolvedLocations.add(locationResolver.resolve(locations.get(i)));
+        }
+        // keep the order of the selected locations
+        Snapshot[] results = new Snapshot[resolvedLocations.size()];
+        for (int[] group : coalescer.coalesce(resolvedLocations)) {
+            if (group.length == 1) {
+                results[group[0]] = fetch(url, resolvedLocations.get(group[0]));
+            } else {
+                fetchGroup(url, resolvedLocations, group, results);
+            }
+        }
+        List<Snapshot> snapshots = new ArrayList<>(results.length);
+        for (Snapshot snapshot : results) {
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /** URLs without a precomputed key (i.e. seeds) are always looked up */
+    private boolean isFiltered(CrawlUrl url) {
+        return archivedUrls != null && url.getSurt() != null;
+    }
+
+    private boolean mightBeArchived(CrawlUrl url) {
+        if (!isFiltered(url)) {
+            return true;
+        }
+        if (!archivedUrls.mightContain(url.getSurt())) {
+            filterRejected.mark();
+            return false;
+        }
+        filterPassed.mark();
+        return true;
+    }
+
+    private SnapshotLocations findLocations(CrawlUrl url) {
+        return url.getSurt() != null ? locator.findLocationsBySurt(url.getSurt())
+                : locator.findLocations(url.getUrl());
+    }
+
+    private SnapshotLocations await(CrawlUrl url, CompletableFuture<SnapshotLocations> lookup)
+            throws IOException {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the lookup of " + url);
+        } catch (ExecutionException e) {
+            // e.g. too many pending lookups
+            logger.debug("Asynchronous lookup of '{}' failed, retrying ", url, e.getCause());
+            return findLocations(url);
+        }
+    }
+
+    private Snapshot fetch(CrawlUrl url, SnaphotLocation location) {
+        try (ArchiveReader archiveReader = reader.open(location)) {
+            return parse(url, archiveReader);
+        } catch (Exception e) {
+            logger.info("Failed to get snapshot '{}' because of exception ", url, e);
+            return null;
+        }
+    }
+
+    private void fetchGroup(CrawlUrl url, List<SnaphotLocation> locations, int[] group, Snapshot[] results) {
+        List<SnaphotLocation> groupLocations = new ArrayList<>(group.length);
+        for (int index : group) {
+            groupLocations.add(locations.get(index));
+        }
+        List<ArchiveReader> readers;
+        try {
+            readers = reader.openAll(groupLocations);
+        } catch (Exception e) {
+            logger.debug("Coalesced read failed for '{}', reading records separately ", url, e);
+            for (int index : group) {
+                results[index] = fetch(url, locations.get(index));
+            }
+            return;
+        }
+        for (int i = 0; i < group.length; i++) {
+            try (ArchiveReader archiveReader = readers.get(i)) {
+                results[group[i]] = parse(url, archiveReader);
             } catch (Exception e) {
                 logger.info("Failed to get snapshot '{}' because of exception ", url, e);
-                return null;
             }
-        }).filter(Objects::nonNull).collect(toList());
+        }
     }
 
-    @Override
-    public void close() throws IOException {
-        if (locator instanceof Closeable) {
-            ((Closeable) locator).close();
+    private Snapshot parse(CrawlUrl url, ArchiveReader archiveReader) throws IOException {
+        try (ArchiveRecord record = archiveReader.get()) {
+            return recordParser.readSnapshot(record);
         }
     }
 
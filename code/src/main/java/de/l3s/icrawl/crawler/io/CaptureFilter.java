@@ -0,0 +1,117 @@
+package de.l3s.icrawl.crawler.io;
+
+import java.util.Locale;
+import java.util.Set;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Drops captures that cannot be analysed before their records are read.
+ *
+ * Only uses the index data of a capture: its MIME type, its HTTP status (when
+ * the index has one) and its original URL. Captures without a MIME type or
+ * status are kept, the record parser decides about them.
+ */
+public class CaptureFilter {
+    private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private final Set<String> mimeTypes;
+    private final Set<Integer> statuses;
+    private final UrlFilter urlFilter;
+    private final Counter rejectedMimeType;
+    private final Counter rejectedStatus;
+    private final Counter rejectedUrl;
+    private final Counter accepted;
+
+    /**
+     * @param mimeTypes
+     *            accepted MIME types, all types are accepted if empty
+     * @param statuses
+     *            accepted HTTP status codes, all codes are accepted if empty
+     * @param urlFilter
+     *            filter for the original URL of a capture
+     */
+    public CaptureFilter(Set<String> mimeTypes, Set<Integer> statuses, UrlFilter urlFilter, MetricRegistry metrics) {
+        ImmutableSet.Builder<String> normalizedTypes = ImmutableSet.builder();
+        for (String mimeType : mimeTypes) {
+            normalizedTypes.add(mimeType.toLowerCase(Locale.ROOT));
+        }
+        this.mimeTypes = normalizedTypes.build();
+        this.statuses = ImmutableSet.copyOf(statuses);
+        this.urlFilter = urlFilter;
+        rejectedMimeType = metrics.counter(name(getClass(), "rejected", "mimeType"));
+        rejectedStatus = metrics.counter(name(getClass(), "rejected", "status"));
+        rejectedUrl = metrics.counter(name(getClass(), "rejected", "url"));
+        accepted = metrics.counter(name(getClass(), "accepted"));
+    }
+
+    /**
+     * Create a filter from comma separated lists of MIME types and status
+     * codes.
+     */
+    public static CaptureFilter parse(String mimeTypes, String statuses, UrlFilter urlFilter, MetricRegistry metrics) {
+        ImmutableSet.Builder<Integer> statusCodes = ImmutableSet.builder();
+        for (String status : LIST_SPLITTER.split(statuses)) {
+            statusCodes.add(Integer.valueOf(status));
+        }
+        return new CaptureFilter(ImmutableSet.copyOf(LIST_SPLITTER.split(mimeTypes)), statusCodes.build(), urlFilter,
+            metrics);
+    }
+
+    /** A filter that keeps all captures. */
+    public static CaptureFilter acceptAll(MetricRegistry metrics) {
+        return new CaptureFilter(ImmutableSet.<String> of(), ImmutableSet.<Integer> of(), UrlFilter.ACCEPT_ALL,
+            metrics);
+    }
+
+    /**
+     * @return the accepted captures, in the same order
+     */
+    public SnapshotLocations filter(SnapshotLocations locations) {
+        int[] selected = new int[locations.size()];
+        int count = 0;
+        for (int i = 0; i < locations.size(); i++) {
+            if (accept(locations, i)) {
+                selected[count++] = i;
+            }
+        }
+        accepted.inc(count);
+        return count == locations.size() ? locations : locations.select(selected, count);
+    }
+
+    private boolean accept(SnapshotLocations locations, int index) {
+        if (!acceptMimeType(locations.getMimeType(index))) {
+            rejectedMimeType.inc();
+            return false;
+        }
+        int status = locations.getStatus(index);
+        if (!statuses.isEmpty() && status != SnapshotLocations.NO_STATUS && !statuses.contains(status)) {
+            rejectedStatus.inc();
+            return false;
+        }
+        String url = locations.getUrl(index);
+        if (url != null && !urlFilter.apply(url)) {
+            rejectedUrl.inc();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean acceptMimeType(String mimeType) {
+        if (mimeTypes.isEmpty() || mimeType == null || mimeType.isEmpty() || "-".equals(mimeType)
+                || "unk".equals(mimeType)) {
+            return true;
+        }
+        int end = mimeType.indexOf(';');
+        String type = (end >= 0 ? mimeType.substring(0, end) : mimeType).trim().toLowerCase(Locale.ROOT);
+        return mimeTypes.contains(type);
+    }
+
+}
@@ -0,0 +1,255 @@
+package de.l3s.icrawl.crawler.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.l3s.icrawl.crawler.CrawlUrl;
+import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.crawler.frontier.Frontier;
+import de.l3s.icrawl.snapshots.Snapshot;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
+import de.l3s.icrawl.util.PooledByteBuffer;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Fetches the snapshots of the next frontier entries while the current one is
+ * analysed.
+ *
+ * Up to <tt>depth</tt> URLs are taken from the frontier ahead of time and
+ * fetched one after another on a background thread, so the wrapped fetcher is
+ * never used concurrently. New fetches are only started while the snapshots
+ * that were fetched but not yet consumed stay below the memory budget, which
+ * can be shared by the read-ahead fetchers of all threads. With an
+ * asynchronous locator the index lookups of all taken URLs are started at
+ * once, and only the WARC records are read on the background thread. URLs
+ * that were taken but not processed are returned to the frontier on
+ * {@link #close(Frontier)}.
+ */
+public class ReadAheadFetcher {
+    private static final Logger logger = LoggerFactory.getLogger(ReadAheadFetcher.class);
+
+    /** A URL whose snapshots are being fetched */
+    public static class Pending {
+        private final CrawlUrl url;
+        private final Future<List<Snapshot>> snapshots;
+
+        Pending(CrawlUrl url, Future<List<Snapshot>> snapshots) {
+            this.url = url;
+            this.snapshots = snapshots;
+        }
+
+        public CrawlUrl getUrl() {
+            return url;
+        }
+    }
+
+    private final ArchiveFetcher fetcher;
+    private final int depth;
+    private final long maxBufferedBytes;
+    private final ExecutorService executor;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final AtomicLong bufferedBytes;
+    /** set on close, fetches that complete afterwards release their snapshots */
+    private volatile boolean closed = false;
+    private final Meter ready;
+    private final Meter budgetExceeded;
+    private final Meter returnedUrls;
+    private final Timer waitTime;
+
+    /**
+     * @param depth
+     *            number of URLs to fetch ahead, 0 fetches synchronously
+     * @param maxBufferedBytes
+     *            no new fetches are started while fetched snapshots of this
+     *            size are waiting
+     */
+    public ReadAheadFetcher(ArchiveFetcher fetcher, int depth, long maxBufferedBytes, MetricRegistry metrics) {
+        this(fetcher, depth, maxBufferedBytes, new AtomicLong(), metrics);
+    }
+
+    /**
+     * @param bufferedBytes
+     *            size of the fetched snapshots that are waiting, shared with
+     *            other fetchers for a common budget
+     */
+    public ReadAheadFetcher(ArchiveFetcher fetcher, int depth, long maxBufferedBytes, AtomicLong bufferedBytes,
+            MetricRegistry metrics) {
+        this.fetcher = fetcher;
+        this.depth = depth;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.bufferedBytes = bufferedBytes;
+        if (depth > 0) {
+            executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("read-ahead-%d").setDaemon(true).build());
+        } else {
+            executor = null;
+        }
+        ready = metrics.meter(name(getClass(), "ready"));
+        budgetExceeded = metrics.meter(name(getClass(), "budgetExceeded"));
+        returnedUrls = metrics.meter(name(getClass(), "returnedUrls"));
+        waitTime = metrics.timer(name(getClass(), "waitTime"));
+    }
+
+    /**
+     * Take the next URL and start fetching the ones after it.
+     *
+     * @return the next URL, or null if the frontier is empty
+     */
+    public Pending next(Frontier frontier, TimeSpecification referenceTime) {
+        if (executor == null) {
+            Optional<CrawlUrl> url = frontier.pop();
+            return url.isPresent() ? new Pending(url.get(), null) : null;
+        }
+        if (pending.isEmpty()) {
+            fill(frontier, referenceTime, 1);
+        }
+        Pending next = pending.pollFirst();
+        if (next != null) {
+            fill(frontier, referenceTime, depth);
+        }
+        return next;
+    }
+
+    private void fill(Frontier frontier, TimeSpecification referenceTime, int size) {
+        while (pending.size() < size) {
+            if (!pending.isEmpty() && bufferedBytes.get() >= maxBufferedBytes) {
+                budgetExceeded.mark();
+                return;
+            }
+            Optional<CrawlUrl> url = frontier.pop();
+            if (!url.isPresent()) {
+                return;
+            }
+            CrawlUrl crawlUrl = url.get();
+            CompletableFuture<SnapshotLocations> lookup = fetcher.startLookup(crawlUrl);
+            pending.addLast(new Pending(crawlUrl, executor.submit(() -> {
+                List<Snapshot> snapshots = fetcher.get(crawlUrl, lookup, referenceTime);
+                if (closed) {
+                    closeAll(snapshots);
+                    return Collections.<Snapshot> emptyList();
+                }
+                bufferedBytes.addAndGet(size(snapshots));
+                return snapshots;
+            })));
+        }
+    }
+
+    /**
+     * Wait for the snapshots of a URL returned by
+     * {@link #next(Frontier, TimeSpecification)}.
+     */
+    public List<Snapshot> get(Pending next, TimeSpecification referenceTime) throws IOException {
+        if (next.snapshots == null) {
+            return fetcher.get(next.url, referenceTime);
+        }
+        if (next.snapshots.isDone()) {
+            ready.mark();
+        }
+        try (Timer.Context context = waitTime.time()) {
+            List<Snapshot> snapshots = next.snapshots.get();
+            bufferedBytes.addAndGet(-size(snapshots));
+            return snapshots;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + next.url);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /** Approximate memory used by the content of the snapshots */
+    private static long size(List<Snapshot> snapshots) {
+        long size = 0;
+        for (Snapshot snapshot : snapshots) {
+            PooledByteBuffer raw = snapshot.getRawContent();
+            if (raw != null) {
+                size += raw.length();
+            } else if (snapshot.getContent() instanceof String) {
+                size += 2L * ((String) snapshot.getContent()).length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Stop all fetches, release the snapshots that were fetched but not
+     * consumed and return their URLs to the frontier. Waits for a running
+     * fetch, so the shared locator and reader of the wrapped fetcher can be
+     * closed afterwards.
+     */
+    public void close(Frontier frontier) throws IOException {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    logger.info("Read-ahead thread did not terminate in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<CrawlUrl> unprocessed = new ArrayList<>(pending.size());
+        for (Pending p : pending) {
+            unprocessed.add(p.url);
+            if (p.snapshots.isDone()) {
+                release(p);
+            }
+        }
+        pending.clear();
+        if (!unprocessed.isEmpty()) {
+            logger.debug("Returning {} prefetched URLs to the frontier", unprocessed.size());
+            returnedUrls.mark(unprocessed.size());
+            frontier.push(unprocessed);
+        }
+    }
+
+    /** Release the buffers of a fetch that completed before the close */
+    private void release(Pending p) {
+        try {
+            closeAll(p.snapshots.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // nothing to release
+        }
+    }
+
+    private static void closeAll(List<Snapshot> snapshots) {
+        for (Snapshot snapshot : snapshots) {
+            snapshot.close();
+        }
+    }
+
+    @VisibleForTesting
+    long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+}
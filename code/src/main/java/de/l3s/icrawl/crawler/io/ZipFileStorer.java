@@ -2,6 +2,9 @@ package de.l3s.icrawl.crawler.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -15,7 +18,10 @@ import org.slf4j.LoggerFactory;
 
 import de.l3s.icrawl.crawler.CrawlUrl;
 import de.l3s.icrawl.crawler.CrawledResource;
+import de.l3s.icrawl.snapshots.Snapshot;
+import de.l3s.icrawl.util.PooledByteBuffer;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class ZipFileStorer implements ResultStorer {
@@ -59,27 +65,48 @@ public class ZipFileStorer implements ResultStorer {
                 int index = successfullUrls.size();
                 String fileName = index + ".html";
                 successfullUrls.add(new StoredUrl(resource, fileName));
-                Object content = resource.getResource().getContent();
-                byte[] bytes;
-                if (content instanceof String) {
-                    bytes = ((String) content).getBytes(UTF_8);
-                } else {
-                    bytes = (byte[]) content;
-                }
+                Object content = storedContent(resource.getResource());
                 Instant crawlTime = resource.getResource().getCrawlTime().toInstant();
-                writeZipEntry(fileName, crawlTime, bytes);
+                writeZipEntry(fileName, crawlTime, content);
             } catch (IOException e) {
                 LOG.info("Exception while storing result '{}':", resource, e);
             }
         }
     }
 
-    private void writeZipEntry(String fileName, Instant timestamp, byte[] bytes) throws IOException {
+    /**
+     * UTF-8 encoded text is written as it was archived, without decoding and
+     * encoding it again. Other text is stored as UTF-8.
+     */
+    private static Object storedContent(Snapshot snapshot) {
+        PooledByteBuffer raw = snapshot.getRawContent();
+        Charset charset = snapshot.getCharset();
+        if (raw != null && (UTF_8.equals(charset) || US_ASCII.equals(charset))) {
+            return raw;
+        }
+        return snapshot.getContent();
+    }
+
+    /**
+     * Write an entry, the content is either a String, a byte array or a
+     * {@link PooledByteBuffer}.
+     */
+    private void writeZipEntry(String fileName, Instant timestamp, Object content) throws IOException {
         synchronized (writeLock) {
             ZipEntry entry = new ZipEntry(fileName);
             entry.setCreationTime(FileTime.from(timestamp));
             os.putNextEntry(entry);
-            os.write(bytes);
+            if (content instanceof String) {
+                // encode directly into the zip stream instead of creating a byte[] copy,
+                // the writer must not be closed as that would close the zip file
+                Writer writer = new OutputStreamWriter(os, UTF_8);
+                writer.write((String) content);
+                writer.flush();
+            } else if (content instanceof PooledByteBuffer) {
+                ((PooledByteBuffer) content).writeTo(os);
+            } else {
+                os.write((byte[]) content);
+            }
             os.closeEntry();
         }
     }
@@ -112,7 +139,7 @@ public class ZipFileStorer implements ResultStorer {
                 .append(failedUrl.getPriority())
                 .append('\n');
         }
-        writeZipEntry("missing.csv", Instant.now(), sb.toString().getBytes(UTF_8));
+        writeZipEntry("missing.csv", Instant.now(), sb.toString());
     }
 
     private void writeTOC() throws IOException {
@@ -135,7 +162,7 @@ public class ZipFileStorer implements ResultStorer {
                 .append(storedUrl.modifiedDate)
                 .append('\n');
         }
-        writeZipEntry("urls.csv", Instant.now(), sb.toString().getBytes(UTF_8));
+        writeZipEntry("urls.csv", Instant.now(), sb.toString());
     }
 
 }
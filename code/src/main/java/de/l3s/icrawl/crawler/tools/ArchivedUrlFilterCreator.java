@@ -0,0 +1,102 @@
+package de.l3s.icrawl.crawler.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.l3s.icrawl.snapshots.ArchivedUrlFilter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Build the {@link ArchivedUrlFilter} from CDX files.
+ *
+ * Takes plain or gzipped CDX files (or directories containing them) on any
+ * Hadoop file system; the first field of each line is the SURT key.
+ */
+public class ArchivedUrlFilterCreator {
+    private static final Logger logger = LoggerFactory.getLogger(ArchivedUrlFilterCreator.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: java " + ArchivedUrlFilterCreator.class.getName()
+                    + " outputFile expectedUrls falsePositiveRate cdxPath...");
+            System.exit(1);
+        }
+        File outputFile = new File(args[0]);
+        ArchivedUrlFilter.Builder filter = ArchivedUrlFilter.builder(Long.parseLong(args[1]),
+            Double.parseDouble(args[2]));
+        Configuration conf = new Configuration();
+        for (int i = 3; i < args.length; i++) {
+            Path path = new Path(args[i]);
+            FileSystem fs = path.getFileSystem(conf);
+            for (Path cdxFile : listCdxFiles(fs, path)) {
+                logger.info("Reading {}", cdxFile);
+                try (InputStream is = open(fs, cdxFile)) {
+                    addKeys(is, filter);
+                }
+            }
+        }
+        filter.writeTo(outputFile);
+        System.out.printf("Wrote filter with %d URLs to %s%n", filter.getInsertions(), outputFile);
+    }
+
+    private static List<Path> listCdxFiles(FileSystem fs, Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (FileStatus status : fs.listStatus(path)) {
+            String name = status.getPath().getName();
+            if (status.isFile() && (name.endsWith(".cdx") || name.endsWith(".gz"))) {
+                files.add(status.getPath());
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static InputStream open(FileSystem fs, Path file) throws IOException {
+        InputStream is = fs.open(file);
+        return file.getName().endsWith(".gz") ? new GZIPInputStream(is, 1 << 16) : is;
+    }
+
+    /**
+     * Add the keys of all CDX lines to the filter.
+     *
+     * @return number of distinct keys read
+     */
+    @VisibleForTesting
+    static long addKeys(InputStream cdx, ArchivedUrlFilter.Builder filter) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(cdx, UTF_8), 1 << 16);
+        long keys = 0;
+        String previous = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(" CDX") || line.isEmpty()) {
+                continue;
+            }
+            int end = line.indexOf(' ');
+            String surt = end >= 0 ? line.substring(0, end) : line;
+            // CDX files are sorted, so captures of the same URL are adjacent
+            if (!surt.equals(previous)) {
+                filter.put(surt);
+                previous = surt;
+                keys++;
+            }
+        }
+        return keys;
+    }
+
+}
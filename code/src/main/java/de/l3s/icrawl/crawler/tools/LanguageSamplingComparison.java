@@ -0,0 +1,96 @@
+package de.l3s.icrawl.crawler.tools;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jsoup.Jsoup;
+import org.openimaj.text.nlp.language.LanguageDetector;
+
+import de.l3s.icrawl.contentanalysis.PageScan;
+
+/**
+ * Compare the language detected from a sample of the page text
+ * ({@link LanguageDetector#classifySample(String, int, double)}) with the
+ * language of the full text.
+ *
+ * Reads all pages stored in the result zip files written by the crawler and
+ * prints the share of pages where the pure sample and the sample with the
+ * fallback to the full text agree with the full text, the pages that disagree
+ * and the time spent by each method.
+ */
+public class LanguageSamplingComparison {
+
+    private static class Stats {
+        private int pages = 0;
+        private int sampled = 0;
+        private int sameSample = 0;
+        private int sameWithFallback = 0;
+        private long fullNanos = 0;
+        private long sampleNanos = 0;
+        private final Map<String, Integer> differences = new TreeMap<>();
+
+        void print() {
+            System.out.printf("pages: %d, longer than the sample: %d%n", pages, sampled);
+            if (pages == 0) {
+                return;
+            }
+            System.out.printf("same language (sample only):   %6.2f%%%n", 100.0 * sameSample / pages);
+            System.out.printf("same language (with fallback): %6.2f%%%n", 100.0 * sameWithFallback / pages);
+            System.out.printf("time: full text %.3f ms/page, sample with fallback %.3f ms/page%n",
+                fullNanos / 1e6 / pages, sampleNanos / 1e6 / pages);
+            for (Map.Entry<String, Integer> entry : differences.entrySet()) {
+                System.out.printf("  %s: %d%n", entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: java " + LanguageSamplingComparison.class.getName()
+                    + " sampleLength minMargin crawlResult.zip...");
+            System.exit(1);
+        }
+        int sampleLength = Integer.parseInt(args[0]);
+        double minMargin = Double.parseDouble(args[1]);
+        LanguageDetector detector = new LanguageDetector();
+        Stats stats = new Stats();
+        for (int i = 2; i < args.length; i++) {
+            StoredPages.read(args[i], url -> true, (url, html) -> {
+                String text = PageScan.scan(Jsoup.parse(html, url)).getText();
+                compare(detector, url, text, sampleLength, minMargin, stats);
+            });
+        }
+        stats.print();
+    }
+
+    private static void compare(LanguageDetector detector, String url, String text, int sampleLength,
+            double minMargin, Stats stats) {
+        if (text.trim().isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        String full = detector.classify(text).language;
+        long middle = System.nanoTime();
+        String withFallback = detector.classifySample(text, sampleLength, minMargin).language;
+        long end = System.nanoTime();
+        String sample = detector.classifySample(text, sampleLength, Double.NEGATIVE_INFINITY).language;
+
+        stats.pages++;
+        stats.fullNanos += middle - start;
+        stats.sampleNanos += end - middle;
+        if (text.length() > sampleLength) {
+            stats.sampled++;
+        }
+        if (full.equals(sample)) {
+            stats.sameSample++;
+        }
+        if (full.equals(withFallback)) {
+            stats.sameWithFallback++;
+        } else {
+            System.out.printf("%s: %s vs. %s (%d chars)%n", url, full, withFallback, text.length());
+            stats.differences.merge(full + " -> " + withFallback, 1, Integer::sum);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.l3s.icrawl.crawler.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.io.ByteStreams;
+
+import de.l3s.icrawl.crawler.io.ZipFileStorer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the pages stored in the result zip files written by the crawler
+ * ({@link ZipFileStorer}), using the table of contents in <tt>urls.csv</tt>.
+ */
+class StoredPages {
+
+    interface PageHandler {
+        void page(String url, String html) throws IOException, InterruptedException;
+    }
+
+    private StoredPages() {}
+
+    /**
+     * Call the handler for every stored page whose URL is accepted by the
+     * filter. Zip files without a table of contents are skipped.
+     */
+    static void read(String zipFile, Predicate<String> urlFilter, PageHandler handler) throws IOException,
+            InterruptedException {
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            ZipEntry toc = zip.getEntry("urls.csv");
+            if (toc == null) {
+                System.err.printf("No urls.csv in %s, skipping%n", zipFile);
+                return;
+            }
+            for (String line : readLines(zip, toc)) {
+                String[] fields = line.split("\t");
+                if (fields.length < 5 || !urlFilter.test(fields[0])) {
+                    continue;
+                }
+                ZipEntry entry = zip.getEntry(fields[4]);
+                if (entry != null) {
+                    try (InputStream is = zip.getInputStream(entry)) {
+                        handler.page(fields[0], new String(ByteStreams.toByteArray(is), UTF_8));
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> readLines(ZipFile zip, ZipEntry entry) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), UTF_8))) {
+            // skip the header
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
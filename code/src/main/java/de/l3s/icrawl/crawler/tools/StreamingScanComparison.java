@@ -0,0 +1,185 @@
+package de.l3s.icrawl.crawler.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import de.l3s.icrawl.contentanalysis.PageScan;
+import de.l3s.icrawl.contentanalysis.StreamingPageScan;
+import de.l3s.icrawl.contentanalysis.WebPageDateExtractor;
+import de.l3s.icrawl.contentanalysis.WebPageDateExtractor.WebPageDate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compare the streaming analysis ({@link StreamingPageScan}) with the DOM based
+ * one ({@link PageScan}) on the annotated URLs.
+ *
+ * Reads the annotation CSV files and the result zip files written by the
+ * crawler, analyses every stored page that was annotated with both methods and
+ * prints the pages with different text, outlinks or modification date
+ * followed by a summary.
+ */
+public class StreamingScanComparison {
+
+    private static class Stats {
+        private int pages = 0;
+        private int sameText = 0;
+        private double textSimilarity = 0;
+        private int sameLinks = 0;
+        private double linkSimilarity = 0;
+        private int sameDate = 0;
+        private long domNanos = 0;
+        private long streamingNanos = 0;
+
+        void print() {
+            System.out.printf("pages: %d%n", pages);
+            if (pages == 0) {
+                return;
+            }
+            System.out.printf("same text:  %5.1f%% (token overlap %.3f)%n", 100.0 * sameText / pages,
+                textSimilarity / pages);
+            System.out.printf("same links: %5.1f%% (overlap %.3f)%n", 100.0 * sameLinks / pages,
+                linkSimilarity / pages);
+            System.out.printf("same date:  %5.1f%%%n", 100.0 * sameDate / pages);
+            System.out.printf("time: DOM %.2f ms/page, streaming %.2f ms/page%n", domNanos / 1e6 / pages,
+                streamingNanos / 1e6 / pages);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: java " + StreamingScanComparison.class.getName()
+                    + " annotationsDir crawlResult.zip...");
+            System.exit(1);
+        }
+        Set<String> annotatedUrls = readAnnotatedUrls(new File(args[0]));
+        System.out.printf("Read %d annotated URLs%n", annotatedUrls.size());
+        Stats stats = new Stats();
+        for (int i = 1; i < args.length; i++) {
+            StoredPages.read(args[i], url -> annotatedUrls.contains(normalizeUrl(url)),
+                (url, html) -> compare(url, html, stats));
+        }
+        stats.print();
+    }
+
+    private static void compare(String url, String html, Stats stats) throws InterruptedException {
+        long start = System.nanoTime();
+        Document doc = Jsoup.parse(html, url);
+        PageScan page = PageScan.scan(doc);
+        Set<String> domLinks = new HashSet<>();
+        for (Element link : page.getLinks()) {
+            domLinks.add(link.absUrl("href"));
+        }
+        WebPageDate domDate = WebPageDateExtractor.extractModifiedDate(page);
+        long middle = System.nanoTime();
+        StreamingPageScan streamingPage = StreamingPageScan.scan(html, url);
+        Set<String> streamingLinks = new HashSet<>(streamingPage.getLinks());
+        WebPageDate streamingDate = WebPageDateExtractor.extractModifiedDate(streamingPage);
+        long end = System.nanoTime();
+
+        stats.pages++;
+        stats.domNanos += middle - start;
+        stats.streamingNanos += end - middle;
+        List<String> differences = new ArrayList<>(3);
+        if (page.getText().equals(streamingPage.getText())) {
+            stats.sameText++;
+            stats.textSimilarity += 1.0;
+        } else {
+            double similarity = jaccard(tokens(page.getText()), tokens(streamingPage.getText()));
+            stats.textSimilarity += similarity;
+            differences.add(String.format("text (%.3f)", similarity));
+        }
+        if (domLinks.equals(streamingLinks)) {
+            stats.sameLinks++;
+            stats.linkSimilarity += 1.0;
+        } else {
+            double similarity = jaccard(domLinks, streamingLinks);
+            stats.linkSimilarity += similarity;
+            differences.add(String.format("links (%d vs. %d, %.3f)", domLinks.size(), streamingLinks.size(),
+                similarity));
+        }
+        if (String.valueOf(domDate).equals(String.valueOf(streamingDate))) {
+            stats.sameDate++;
+        } else {
+            differences.add(String.format("date (%s vs. %s)", domDate, streamingDate));
+        }
+        if (!differences.isEmpty()) {
+            System.out.printf("%s: %s%n", url, String.join(", ", differences));
+        }
+    }
+
+    private static Set<String> tokens(String text) {
+        return new HashSet<>(Arrays.asList(text.split("\\s+")));
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        return (double) Sets.intersection(a, b).size() / Sets.union(a, b).size();
+    }
+
+    /** Read the URL column of all annotation CSV files in a directory */
+    private static Set<String> readAnnotatedUrls(File directory) throws IOException {
+        Set<String> urls = new HashSet<>();
+        for (File csvFile : directory.listFiles((dir, name) -> name.endsWith(".csv"))) {
+            List<String> lines = Files.readLines(csvFile, UTF_8);
+            for (String line : lines.subList(1, lines.size())) {
+                List<String> fields = parseCsvLine(line);
+                if (fields.size() > 1) {
+                    urls.add(normalizeUrl(fields.get(1)));
+                }
+            }
+        }
+        return urls;
+    }
+
+    /** The annotations contain the default port, the crawl results do not */
+    @VisibleForTesting
+    static String normalizeUrl(String url) {
+        return url.replaceFirst("^(https?://[^/:]+):80(/|$)", "$1$2");
+    }
+
+    @VisibleForTesting
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
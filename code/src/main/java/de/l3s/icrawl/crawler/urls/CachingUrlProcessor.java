@@ -0,0 +1,63 @@
+package de.l3s.icrawl.crawler.urls;
+
+import java.util.Optional;
+
+import org.archive.url.URLKeyMaker;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * URL processor that remembers the results for recently seen URLs.
+ *
+ * Navigation links repeat on every page of a site, so most outlinks have been
+ * normalized before. The cache is keyed by the raw absolute URL and also
+ * remembers rejected URLs. It is thread-safe and can be shared by all threads
+ * of a crawl.
+ */
+public class CachingUrlProcessor extends UrlProcessor {
+    private final LoadingCache<String, Optional<NormalizedUrl>> processed;
+    private final Timer normalizationTime;
+
+    public CachingUrlProcessor(UrlNormalizer normalizer, UrlFilter filter, URLKeyMaker keyMaker, long maximumSize,
+            MetricRegistry metrics) {
+        super(normalizer, filter, keyMaker);
+        normalizationTime = metrics.timer(name(getClass(), "normalizationTime"));
+        processed = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build(new CacheLoader<String, Optional<NormalizedUrl>>() {
+                @Override
+                public Optional<NormalizedUrl> load(String url) {
+                    try (Timer.Context context = normalizationTime.time()) {
+                        return Optional.ofNullable(CachingUrlProcessor.super.process(url));
+                    }
+                }
+            });
+        // several processors may share a registry, the gauge reports the newest one
+        String hitRateName = name(getClass(), "cacheHitRate");
+        synchronized (metrics) {
+            metrics.remove(hitRateName);
+            metrics.register(hitRateName, new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    CacheStats stats = processed.stats();
+                    return Ratio.of(stats.hitCount(), stats.requestCount());
+                }
+            });
+        }
+    }
+
+    @Override
+    public NormalizedUrl process(String url) {
+        return processed.getUnchecked(url).orElse(null);
+    }
+
+}
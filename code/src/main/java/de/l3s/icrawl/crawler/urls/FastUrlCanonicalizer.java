@@ -0,0 +1,225 @@
+package de.l3s.icrawl.crawler.urls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Canonicalization of common http(s) URLs in a single scan, with the same
+ * result as parsing them with galimatias and applying the canonicalizers of
+ * {@link UrlCanonicalizerNormalizer}.
+ *
+ * Only URLs with a lowercase domain name of simple labels, no port or user info, a path and
+ * query of unreserved ASCII characters without percent encoding or dot
+ * segments are handled; for all other URLs <tt>null</tt> is returned and the
+ * full parser has to be used.
+ */
+final class FastUrlCanonicalizer {
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_HOST_LENGTH = 253;
+
+    private FastUrlCanonicalizer() {}
+
+    /**
+     * @return the canonical URL, or null if the URL needs the full parser
+     */
+    static String canonicalize(String url, Pattern excludeParameters) {
+        int hostStart;
+        if (url.startsWith("http://")) {
+            hostStart = 7;
+        } else if (url.startsWith("https://")) {
+            hostStart = 8;
+        } else {
+            return null;
+        }
+        int length = url.length();
+
+        int i = hostStart;
+        int labelStart = i;
+        for (; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            } else if (c == '.') {
+                if (!isSimpleLabel(url, labelStart, i)) {
+                    return null;
+                }
+                labelStart = i + 1;
+            } else if (!isLowerAlpha(c) && !isDigit(c) && c != '-') {
+                return null;
+            }
+        }
+        // numeric hosts may be IPv4 addresses in some notation
+        if (!isSimpleLabel(url, labelStart, i) || !isLowerAlpha(url.charAt(labelStart))
+                || i - hostStart > MAX_HOST_LENGTH) {
+            return null;
+        }
+        int hostEnd = i;
+
+        int segmentStart = i;
+        for (; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                break;
+            } else if (c == '/') {
+                if (isDotSegment(url, segmentStart, i)) {
+                    return null;
+                }
+                segmentStart = i + 1;
+            } else if (!isPathChar(c)) {
+                return null;
+            }
+        }
+        if (isDotSegment(url, segmentStart, i)) {
+            return null;
+        }
+        int pathEnd = i;
+
+        int queryStart = -1;
+        if (i < length && url.charAt(i) == '?') {
+            queryStart = ++i;
+            for (; i < length && url.charAt(i) != '#'; i++) {
+                char c = url.charAt(i);
+                if (!isQueryChar(c) && c != '&' && c != '=') {
+                    return null;
+                }
+            }
+        }
+        int queryEnd = i;
+        // the fragment is stripped
+        for (; i < length; i++) {
+            char c = url.charAt(i);
+            if (c <= 0x20 || c >= 0x7f) {
+                return null;
+            }
+        }
+
+        String query = null;
+        boolean queryChanged = false;
+        if (queryStart >= 0) {
+            query = canonicalizeQuery(url, queryStart, queryEnd, excludeParameters);
+            if (query == null) {
+                return null;
+            }
+            if (query.isEmpty()) {
+                query = null;
+                queryChanged = true;
+            } else {
+                queryChanged = query.length() != queryEnd - queryStart
+                        || !url.regionMatches(queryStart, query, 0, query.length());
+            }
+        }
+        boolean emptyPath = pathEnd == hostEnd;
+        if (!emptyPath && !queryChanged && queryEnd == length) {
+            return url;
+        }
+        StringBuilder sb = new StringBuilder(length + 1);
+        sb.append(url, 0, pathEnd);
+        if (emptyPath) {
+            sb.append('/');
+        }
+        if (query != null) {
+            sb.append('?').append(query);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Remove excluded and empty parameters and sort them by name, like
+     * {@link UrlCanonicalizerNormalizer.StripParametersCanonicalizer}.
+     *
+     * @return the query, an empty string if no parameters remain, or null if
+     *         the query needs the full parser
+     */
+    private static String canonicalizeQuery(String url, int start, int end, Pattern excludeParameters) {
+        List<String[]> parameters = new ArrayList<>();
+        boolean unchanged = true;
+        String previousName = null;
+        for (int paramStart = start; paramStart <= end;) {
+            int paramEnd = url.indexOf('&', paramStart);
+            if (paramEnd < 0 || paramEnd > end) {
+                paramEnd = end;
+            }
+            if (paramEnd == paramStart) {
+                // empty parameters are dropped
+                unchanged = false;
+            } else {
+                int equals = url.indexOf('=', paramStart);
+                boolean hasValue = equals >= 0 && equals < paramEnd;
+                String name = url.substring(paramStart, hasValue ? equals : paramEnd);
+                String value = hasValue ? url.substring(equals + 1, paramEnd) : "";
+                if (name.isEmpty()) {
+                    return null;
+                }
+                if (excludeParameters.matcher(name).find()) {
+                    unchanged = false;
+                } else {
+                    if (hasValue && value.isEmpty()
+                            || previousName != null && previousName.compareTo(name) > 0) {
+                        unchanged = false;
+                    }
+                    parameters.add(new String[] { name, value });
+                    previousName = name;
+                }
+            }
+            paramStart = paramEnd + 1;
+        }
+        if (unchanged) {
+            return url.substring(start, end);
+        }
+        // stable, so the values of a parameter keep their order
+        Collections.sort(parameters, (a, b) -> a[0].compareTo(b[0]));
+        StringBuilder sb = new StringBuilder(end - start);
+        for (String[] parameter : parameters) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(parameter[0]);
+            if (!parameter[1].isEmpty()) {
+                sb.append('=').append(parameter[1]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Labels that are valid host names without IDNA processing: no leading or
+     * trailing hyphen and no hyphens at the third and fourth position, which
+     * are reserved for punycode and other encodings.
+     */
+    private static boolean isSimpleLabel(String url, int start, int end) {
+        return end > start && end - start <= MAX_LABEL_LENGTH && url.charAt(start) != '-'
+                && url.charAt(end - 1) != '-' && !url.startsWith("--", start + 2);
+    }
+
+    private static boolean isDotSegment(String url, int start, int end) {
+        return (end - start == 1 && url.charAt(start) == '.')
+                || (end - start == 2 && url.charAt(start) == '.' && url.charAt(start + 1) == '.');
+    }
+
+    private static boolean isLowerAlpha(char c) {
+        return 'a' <= c && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+
+    private static boolean isUnreserved(char c) {
+        return isLowerAlpha(c) || ('A' <= c && c <= 'Z') || isDigit(c) || c == '-' || c == '.' || c == '_'
+                || c == '~';
+    }
+
+    /** characters that neither the parser nor the canonicalizers change in a path */
+    private static boolean isPathChar(char c) {
+        return isUnreserved(c) || c == '!' || c == '$' || c == '&' || c == '(' || c == ')' || c == '*'
+                || c == '+' || c == ',' || c == ';' || c == '=' || c == ':' || c == '@';
+    }
+
+    /** characters of parameter names and values that are not changed */
+    private static boolean isQueryChar(char c) {
+        return isUnreserved(c) || c == '!' || c == '$' || c == '(' || c == ')' || c == '*' || c == ','
+                || c == ';' || c == ':' || c == '@' || c == '/' || c == '?';
+    }
+}
@@ -0,0 +1,30 @@
+package de.l3s.icrawl.crawler.urls;
+
+import java.util.Objects;
+
+/**
+ * A normalized URL together with its SURT key in the archive index.
+ */
+public class NormalizedUrl {
+    private final String url;
+    private final String surt;
+
+    public NormalizedUrl(String url, String surt) {
+        this.url = Objects.requireNonNull(url);
+        this.surt = Objects.requireNonNull(surt);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getSurt() {
+        return surt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", url, surt);
+    }
+
+}
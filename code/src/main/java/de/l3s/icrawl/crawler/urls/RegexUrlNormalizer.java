@@ -5,13 +5,30 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Applies the regex replacement rules of a Nutch style configuration file to
+ * URLs, in the order of the file.
+ *
+ * Most URLs are not changed by any rule, so all rules are combined into one
+ * pattern that is checked first; only when it matches, the rules are applied
+ * one after the other. A rule that does not match leaves its input unchanged
+ * without creating a new string. The matchers are reused by each thread.
+ */
 public class RegexUrlNormalizer implements UrlNormalizer {
+    private static final Logger logger = LoggerFactory.getLogger(RegexUrlNormalizer.class);
+    /** back references refer to group numbers, which change in the combined pattern */
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
     private static class RegexReplaceRule {
         private final Pattern pattern;
         private final String replacement;
@@ -21,13 +38,34 @@ public class RegexUrlNormalizer implements UrlNormalizer {
             this.replacement = replacement;
         }
 
-        public String apply(String input) {
-            return pattern.matcher(input).replaceAll(replacement);
+        /** Replace all matches, the matcher is already positioned at the first one */
+        public String apply(Matcher matcher, String input) {
+            StringBuffer sb = new StringBuffer(input.length() + 16);
+            do {
+                matcher.appendReplacement(sb, replacement);
+            } while (matcher.find());
+            matcher.appendTail(sb);
+            return sb.toString();
         }
 
     }
 
     private final List<RegexReplaceRule> rules;
+    /** matches where any of the rules matches, null if the rules cannot be combined */
+    private final Pattern anyRule;
+    private final ThreadLocal<Matcher[]> matchers = new ThreadLocal<Matcher[]>() {
+        @Override
+        protected Matcher[] initialValue() {
+            Matcher[] ruleMatchers = new Matcher[rules.size() + 1];
+            for (int i = 0; i < rules.size(); i++) {
+                ruleMatchers[i] = rules.get(i).pattern.matcher("");
+            }
+            if (anyRule != null) {
+                ruleMatchers[rules.size()] = anyRule.matcher("");
+            }
+            return ruleMatchers;
+        }
+    };
 
     public RegexUrlNormalizer(URL normalizerRulesResource) throws IOException {
         try (InputStream is = normalizerRulesResource.openStream()) {
@@ -39,13 +77,43 @@ public class RegexUrlNormalizer implements UrlNormalizer {
                 rules.add(new RegexReplaceRule(pattern, replacement));
             }
         }
+        anyRule = combine(rules);
+    }
+
+    private static Pattern combine(List<RegexReplaceRule> rules) {
+        StringBuilder combined = new StringBuilder();
+        for (RegexReplaceRule rule : rules) {
+            String pattern = rule.pattern.pattern();
+            if (BACK_REFERENCE.matcher(pattern).find()) {
+                return null;
+            }
+            if (combined.length() > 0) {
+                combined.append('|');
+            }
+            // inline flags only apply within the group
+            combined.append("(?:").append(pattern).append(')');
+        }
+        try {
+            return Pattern.compile(combined.toString());
+        } catch (PatternSyntaxException e) {
+            logger.debug("Cannot combine URL normalization rules, applying them one by one", e);
+            return null;
+        }
     }
 
     @Override
     public String normalize(String url) {
+        Matcher[] ruleMatchers = matchers.get();
+        Matcher anyRuleMatcher = ruleMatchers[rules.size()];
+        if (anyRuleMatcher != null && !anyRuleMatcher.reset(url).find()) {
+            return url;
+        }
         String result = url;
-        for (RegexReplaceRule rule : rules) {
-            result = rule.apply(result);
+        for (int i = 0; i < rules.size(); i++) {
+            Matcher matcher = ruleMatchers[i].reset(result);
+            if (matcher.find()) {
+                result = rules.get(i).apply(matcher, result);
+            }
         }
         return result;
     }
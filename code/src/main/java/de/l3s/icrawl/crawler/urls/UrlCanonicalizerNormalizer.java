@@ -21,8 +21,14 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 
+/**
+ * Canonicalizes URLs with galimatias: strips session and tracking parameters,
+ * sorts the remaining parameters, removes the fragment and applies RFC 3986
+ * encoding. Common URLs are handled by {@link FastUrlCanonicalizer} without
+ * parsing them.
+ */
 public class UrlCanonicalizerNormalizer implements UrlNormalizer {
-    private static final Pattern EXCLUDE_PATTERN = Pattern.compile("^utm_|sess(ion)?id", Pattern.CASE_INSENSITIVE);
+    static final Pattern EXCLUDE_PATTERN = Pattern.compile("^utm_|sess(ion)?id", Pattern.CASE_INSENSITIVE);
 
     public static class StripParametersCanonicalizer implements URLCanonicalizer {
         private final Pattern excludePattern;
@@ -75,6 +81,12 @@ public class UrlCanonicalizerNormalizer implements UrlNormalizer {
 
     @Override
     public String normalize(String url) {
+        String canonicalUrl = FastUrlCanonicalizer.canonicalize(url, EXCLUDE_PATTERN);
+        return canonicalUrl != null ? canonicalUrl : normalizeWithParser(url);
+    }
+
+    /** Canonicalize with the full parser, also used for URLs the fast path does not handle */
+    String normalizeWithParser(String url) {
         URL parsedUrl;
         try {
             parsedUrl = URL.parse(url);
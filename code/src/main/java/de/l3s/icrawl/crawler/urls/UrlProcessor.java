@@ -0,0 +1,70 @@
+package de.l3s.icrawl.crawler.urls;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.archive.url.URLKeyMaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single processing stage for discovered URLs.
+ *
+ * Normalizes and filters a URL and computes its SURT key, so the key can be
+ * stored in the frontier and does not have to be computed again for the
+ * archive lookup.
+ */
+public class UrlProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(UrlProcessor.class);
+    private final UrlNormalizer normalizer;
+    private final UrlFilter filter;
+    private final URLKeyMaker keyMaker;
+
+    public UrlProcessor(UrlNormalizer normalizer, UrlFilter filter, URLKeyMaker keyMaker) {
+        this.normalizer = normalizer;
+        this.filter = filter;
+        this.keyMaker = keyMaker;
+    }
+
+    /**
+     * @return the normalized URL and its key, or null if the URL is invalid or
+     *         rejected by the filter
+     */
+    public NormalizedUrl process(String url) {
+        String normalized = normalizer.normalize(url);
+        if (!filter.apply(normalized)) {
+            return null;
+        }
+        try {
+            return new NormalizedUrl(normalized, keyMaker.makeKey(normalized));
+        } catch (URISyntaxException | RuntimeException e) {
+            logger.trace("Cannot create key for URL '{}', dropping", normalized, e);
+            return null;
+        }
+    }
+
+    /**
+     * Process all outlinks of a page, duplicate URLs are processed only once.
+     *
+     * @return the processed URLs in the order of their first occurrence,
+     *         without the invalid and rejected ones
+     */
+    public List<NormalizedUrl> processAll(Iterable<String> urls) {
+        Set<String> uniqueUrls = new LinkedHashSet<>();
+        for (String url : urls) {
+            uniqueUrls.add(url);
+        }
+        List<NormalizedUrl> results = new ArrayList<>(uniqueUrls.size());
+        for (String url : uniqueUrls) {
+            NormalizedUrl result = process(url);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+}
@@ -1,6 +1,11 @@
 package de.l3s.icrawl.snapshots;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
@@ -12,7 +17,6 @@ import org.apache.http.protocol.HTTP;
 import org.archive.format.http.HttpHeaders;
 import org.archive.format.http.HttpResponse;
 import org.archive.format.http.HttpResponseParser;
-import org.archive.format.text.charset.CharsetDetector;
 import org.archive.format.warc.WARCConstants;
 import org.archive.io.ArchiveRecord;
 import org.archive.io.ArchiveRecordHeader;
@@ -20,19 +24,44 @@ import org.archive.io.arc.ARCRecordMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.io.ByteStreams;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 
+import de.l3s.icrawl.util.BufferPool;
+
+import static com.codahale.metrics.MetricRegistry.name;
 import static de.l3s.icrawl.snapshots.Utils.asMap;
 import static de.l3s.icrawl.snapshots.Utils.parseTimestamp;
 
 public class ArchiveRecordParser {
     private static final Logger logger = LoggerFactory.getLogger(ArchiveRecordParser.class);
+    public static final int DEFAULT_MAX_PAYLOAD_SIZE = 10 * 1024 * 1024;
+    /** number of bytes used for charset detection */
+    private static final int CHARSET_DETECTION_PREFIX = 64 * 1024;
+    private static final int READ_SIZE = 16 * 1024;
     private final HttpResponseParser responseParser;
-    private final CharsetDetector charsetDetector;
+    private final OnlyHtmlCharsetDetector charsetDetector;
+    private final int maxPayloadSize;
+    private final BufferPool buffers;
+    private final Meter truncated;
+    private final Histogram payloadSizes;
 
     public ArchiveRecordParser() {
+        this(new MetricRegistry(), DEFAULT_MAX_PAYLOAD_SIZE);
+    }
+
+    /**
+     * @param maxPayloadSize
+     *            payloads are truncated after this number of bytes
+     */
+    public ArchiveRecordParser(MetricRegistry metrics, int maxPayloadSize) {
         this.responseParser = new HttpResponseParser();
         this.charsetDetector = new OnlyHtmlCharsetDetector();
+        this.maxPayloadSize = maxPayloadSize;
+        this.buffers = new BufferPool(Math.min(maxPayloadSize, 4 * 1024 * 1024), 4);
+        truncated = metrics.meter(name(getClass(), "truncated"));
+        payloadSizes = metrics.histogram(name(getClass(), "payloadSize"));
     }
 
     public Snapshot readSnapshot(ArchiveRecord archiveRecord) throws IOException {
@@ -42,21 +71,98 @@ public class ArchiveRecordParser {
         HttpResponse response = responseParser.parse(archiveRecord);
         final HttpHeaders headers = response.getHeaders();
         ZonedDateTime timestamp = getCrawlTime(header).orElseGet(() -> serverDate(headers));
-        byte[] contentBuffer = ByteStreams.toByteArray(response.getInner());
-        Object content;
         String mimetype = headers.getValue(HTTP.CONTENT_TYPE);
         if (mimetype == null) {
             mimetype = header.getMimetype();
         }
+        Payload payload = readPayload(response.getInner(), initialBufferSize(headers), originalUrl);
+        payloadSizes.update(payload.length);
+        Charset charset = null;
         if (mimetype != null && mimetype.startsWith("text")) {
-            String charset = charsetDetector.getCharset(contentBuffer, contentBuffer.length, headers);
-            content = new String(contentBuffer, charset);
-        } else {
-            content = contentBuffer;
+            try {
+                int detectionLength = Math.min(payload.length, CHARSET_DETECTION_PREFIX);
+                charset = toCharset(charsetDetector.getCharset(payload.buffer, detectionLength, headers,
+                    originalUrl));
+            } catch (IOException | RuntimeException e) {
+                buffers.release(payload.buffer);
+                throw e;
+            }
         }
 
         int status = response.getMessage().getStatus();
-        return new Snapshot(originalUrl, timestamp, status, mimetype, asMap(headers), content);
+        // the snapshot owns the buffer until it is closed
+        return new Snapshot(originalUrl, timestamp, status, mimetype, () -> asMap(headers),
+            buffers.wrap(payload.buffer, payload.length), charset);
+    }
+
+    private static Charset toCharset(String name) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(name);
+        }
+    }
+
+    /** Payload in a pooled buffer */
+    private static class Payload {
+        final byte[] buffer;
+        final int length;
+
+        Payload(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Read at most <tt>maxPayloadSize</tt> bytes of the payload into a pooled
+     * buffer. The rest of the payload is not read.
+     */
+    private Payload readPayload(InputStream is, int initialSize, String url) throws IOException {
+        byte[] buffer = buffers.acquire(initialSize);
+        int length = 0;
+        try {
+            for (;;) {
+                int limit = Math.min(buffer.length, maxPayloadSize);
+                if (length == limit) {
+                    if (limit == maxPayloadSize) {
+                        if (is.read() >= 0) {
+                            truncated.mark();
+                            logger.debug("Truncated payload of '{}' after {} bytes", url, length);
+                        }
+                        return new Payload(buffer, length);
+                    }
+                    byte[] larger = buffers.acquire((int) Math.min(2L * length, maxPayloadSize));
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffers.release(buffer);
+                    buffer = larger;
+                    continue;
+                }
+                int read = is.read(buffer, length, limit - length);
+                if (read < 0) {
+                    return new Payload(buffer, length);
+                }
+                length += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+    }
+
+    private int initialBufferSize(HttpHeaders headers) {
+        String contentLength = headers.getValueCaseInsensitive(HTTP.CONTENT_LEN);
+        if (contentLength != null) {
+            try {
+                long expected = Long.parseLong(contentLength.trim());
+                if (expected > 0) {
+                    return (int) Math.min(expected, maxPayloadSize);
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the default size
+            }
+        }
+        return Math.min(READ_SIZE, maxPayloadSize);
     }
 
     private ZonedDateTime serverDate(HttpHeaders headers) {
@@ -0,0 +1,139 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bloom filter over the SURT keys of all archived URLs.
+ *
+ * The filter is built offline from the CDX files (see
+ * {@link de.l3s.icrawl.crawler.tools.ArchivedUrlFilterCreator}) and memory
+ * mapped at startup, so URLs that were never archived can be rejected without
+ * an index lookup. Like any Bloom filter it has no false negatives, but may
+ * report unarchived URLs as archived.
+ */
+public final class ArchivedUrlFilter {
+    private static final int MAGIC = 0x53555254; // "SURT"
+    private static final int VERSION = 1;
+    /** magic, version, number of hash functions, padding, number of bits */
+    private static final int HEADER_SIZE = 24;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    public static class Builder {
+        private final long[] words;
+        private final int numHashFunctions;
+        private long insertions = 0;
+
+        Builder(long expectedInsertions, double fpp) {
+            Preconditions.checkArgument(expectedInsertions > 0, "expectedInsertions must be positive");
+            Preconditions.checkArgument(0 < fpp && fpp < 1, "fpp must be in (0, 1)");
+            long numBits = (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            long numWords = Math.max((numBits + 63) / 64, 1);
+            Preconditions.checkArgument(numWords * 8 <= Integer.MAX_VALUE - HEADER_SIZE,
+                "Filter too large for %s insertions with fpp %s", expectedInsertions, fpp);
+            words = new long[(int) numWords];
+            numHashFunctions = Math.max(1, (int) Math.round((double) (numWords * 64) / expectedInsertions * Math.log(2)));
+        }
+
+        public Builder put(String surt) {
+            long numBits = words.length * 64L;
+            long[] hashes = hash(surt);
+            for (int i = 1; i <= numHashFunctions; i++) {
+                long bit = bitIndex(hashes, i, numBits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            insertions++;
+            return this;
+        }
+
+        public long getInsertions() {
+            return insertions;
+        }
+
+        public void writeTo(File file) throws IOException {
+            try (DataOutputStream os = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+                os.writeInt(MAGIC);
+                os.writeInt(VERSION);
+                os.writeInt(numHashFunctions);
+                os.writeInt(0);
+                os.writeLong(words.length * 64L);
+                for (long word : words) {
+                    os.writeLong(word);
+                }
+            }
+        }
+    }
+
+    private final ByteBuffer bits;
+    private final int numHashFunctions;
+    private final long numBits;
+
+    private ArchivedUrlFilter(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an archived URL filter file");
+        }
+        numHashFunctions = buffer.getInt(8);
+        numBits = buffer.getLong(16);
+        if (buffer.capacity() < HEADER_SIZE + numBits / 8) {
+            throw new IOException("Truncated archived URL filter file");
+        }
+        bits = buffer;
+    }
+
+    public static Builder builder(long expectedInsertions, double fpp) {
+        return new Builder(expectedInsertions, fpp);
+    }
+
+    /**
+     * Map a filter file into memory.
+     */
+    public static ArchivedUrlFilter open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            // the mapping stays valid after the channel is closed
+            return new ArchivedUrlFilter(raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length()));
+        }
+    }
+
+    /**
+     * @return false if the URL with the given key is definitely not archived
+     */
+    public boolean mightContain(String surt) {
+        long[] hashes = hash(surt);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bit = bitIndex(hashes, i, numBits);
+            if ((bits.getLong(HEADER_SIZE + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] hash(String surt) {
+        ByteBuffer hash = ByteBuffer.wrap(HASH.hashString(surt, UTF_8).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        return new long[] { hash.getLong(0), hash.getLong(8) };
+    }
+
+    /** i-th bit position by double hashing */
+    private static long bitIndex(long[] hashes, int i, long numBits) {
+        long combined = hashes[0] + i * hashes[1];
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % numBits;
+    }
+
+}
@@ -0,0 +1,265 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.archive.url.URLKeyMaker;
+import org.archive.url.WaybackURLKeyMaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.TABLE_NAME;
+
+/**
+ * Non-blocking locator for the HBase CDX table.
+ *
+ * Lookups are queued and executed by a small, fixed number of I/O threads.
+ * Each thread drains all waiting lookups (up to a maximum batch size) into one
+ * multi-get request, so a few threads can keep hundreds of lookups in flight.
+ * Concurrent lookups of the same URL are coalesced into a single request.
+ *
+ * The blocking methods of {@link SnapshotsLocator} are also supported, they
+ * wait for the result of the asynchronous lookup. When <tt>maxPending</tt>
+ * lookups are already queued, asynchronous lookups fail immediately and
+ * blocking lookups are executed on the calling thread.
+ */
+public class AsyncHBaseSnapshotsLocator extends BaseSnapshotsLocator implements AsyncSnapshotsLocator, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncHBaseSnapshotsLocator.class);
+    private final Connection connection;
+    private final BlockingQueue<String> pending;
+    private final ConcurrentMap<String, CompletableFuture<SnapshotLocations>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService ioThreads;
+    private final int maxBatchSize;
+    private final Meter coalesced;
+    private final Meter rejected;
+    private final Counter inFlightCount;
+    private final Histogram batchSizes;
+    private final Timer lookupTime;
+    private volatile boolean closed = false;
+
+    public AsyncHBaseSnapshotsLocator(Configuration conf, MetricRegistry metrics, int numThreads, int maxBatchSize,
+            int maxPending) throws IOException {
+        this(ConnectionFactory.createConnection(conf), new WaybackURLKeyMaker(), metrics, numThreads, maxBatchSize,
+            maxPending);
+    }
+
+    AsyncHBaseSnapshotsLocator(Connection connection, URLKeyMaker keyMaker, MetricRegistry metrics, int numThreads,
+            int maxBatchSize, int maxPending) {
+        super(keyMaker, metrics);
+        Preconditions.checkArgument(numThreads > 0, "numThreads must be positive");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.connection = connection;
+        this.maxBatchSize = maxBatchSize;
+        pending = new LinkedBlockingQueue<>(maxPending);
+        coalesced = metrics.meter(name(getClass(), "coalesced"));
+        rejected = metrics.meter(name(getClass(), "rejected"));
+        inFlightCount = metrics.counter(name(getClass(), "inFlight"));
+        batchSizes = metrics.histogram(name(getClass(), "batchSize"));
+        lookupTime = metrics.timer(name(getClass(), "lookupTime"));
+        ioThreads = Executors.newFixedThreadPool(numThreads,
+            new ThreadFactoryBuilder().setNameFormat("hbase-lookup-%d").setDaemon(true).build());
+        for (int i = 0; i < numThreads; i++) {
+            ioThreads.submit(this::processLookups);
+        }
+    }
+
+    @Override
+    public CompletableFuture<SnapshotLocations> findLocationsAsync(String url) {
+        try {
+            return lookup(makeSurt(url), false);
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<SnapshotLocations> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    @Override
+    public CompletableFuture<SnapshotLocations> findLocationsBySurtAsync(String surt) {
+        return lookup(surt, false);
+    }
+
+    /**
+     * @param blocking
+     *            if the queue is full, look up on the calling thread instead of
+     *            failing
+     */
+    CompletableFuture<SnapshotLocations> lookup(String surt, boolean blocking) {
+        CompletableFuture<SnapshotLocations> future = new CompletableFuture<>();
+        CompletableFuture<SnapshotLocations> existing = inFlight.putIfAbsent(surt, future);
+        if (existing != null) {
+            coalesced.mark();
+            return existing;
+        }
+        inFlightCount.inc();
+        Timer.Context timer = lookupTime.time();
+        future.whenComplete((result, e) -> {
+            timer.stop();
+            inFlightCount.dec();
+        });
+        // close() sets the flag before failing all futures in inFlight, so
+        // either this check or close() completes the future
+        if (closed) {
+            fail(surt, new IOException("Locator is already closed"));
+            return future;
+        }
+        if (!pending.offer(surt)) {
+            rejected.mark();
+            if (blocking) {
+                executeBatch(Collections.singletonList(surt));
+            } else {
+                fail(surt, new IOException("Too many pending lookups"));
+            }
+        }
+        return future;
+    }
+
+    private void processLookups() {
+        List<String> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                String first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, maxBatchSize - 1);
+                batchSizes.update(batch.size());
+                executeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Interrupted while waiting for lookups, stopping");
+        } finally {
+            for (String surt : batch) {
+                fail(surt, new IOException("Locator was closed during lookup"));
+            }
+        }
+    }
+
+    private void executeBatch(List<String> surts) {
+        List<Get> gets = new ArrayList<>(surts.size());
+        try (Table table = connection.getTable(TABLE_NAME)) {
+            for (String surt : surts) {
+                gets.add(HBaseSnapshotsLocator.createGet(surt));
+            }
+            Result[] results = table.get(gets);
+            for (int i = 0; i < surts.size(); i++) {
+                String surt = surts.get(i);
+                if (results[i] == null) {
+                    fail(surt, new IOException("Lookup failed for " + surt));
+                    continue;
+                }
+                try {
+                    complete(surt, HBaseSnapshotsLocator.toLocations(surt, results[i]));
+                } catch (RuntimeException e) {
+                    fail(surt, e);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Lookup of {} URLs failed: ", surts.size(), e);
+            for (String surt : surts) {
+                fail(surt, e);
+            }
+        }
+    }
+
+    private void complete(String surt, SnapshotLocations locations) {
+        CompletableFuture<SnapshotLocations> future = inFlight.remove(surt);
+        if (future != null) {
+            future.complete(locations);
+        }
+    }
+
+    private void fail(String surt, Throwable t) {
+        CompletableFuture<SnapshotLocations> future = inFlight.remove(surt);
+        if (future != null) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    @Override
+    protected SnapshotLocations findInternal(String surt) throws IOException {
+        return await(lookup(surt, true));
+    }
+
+    @Override
+    protected Optional<SnaphotLocation> findOneInternal(String surt, ZonedDateTime crawlTime) throws IOException {
+        SnapshotLocations locations = await(lookup(surt, true));
+        long crawlTimeSeconds = crawlTime.toEpochSecond();
+        for (int i = 0; i < locations.size(); i++) {
+            if (locations.getCrawlTimeSeconds(i) == crawlTimeSeconds) {
+                return Optional.of(locations.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static SnapshotLocations await(CompletableFuture<SnapshotLocations> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException ioe = new InterruptedIOException("Interrupted while waiting for lookup");
+            ioe.initCause(e);
+            throw ioe;
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        ioThreads.shutdownNow();
+        try {
+            if (!ioThreads.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.info("Lookup threads did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<String> queued = new ArrayList<>(pending.size());
+        pending.drainTo(queued);
+        for (String surt : queued) {
+            fail(surt, new IOException("Locator was closed"));
+        }
+        for (String surt : inFlight.keySet()) {
+            fail(surt, new IOException("Locator was closed"));
+        }
+        connection.close();
+    }
+
+}
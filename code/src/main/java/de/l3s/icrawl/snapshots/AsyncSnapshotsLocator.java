@@ -0,0 +1,25 @@
+package de.l3s.icrawl.snapshots;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Locator that performs index lookups without blocking the caller.
+ */
+public interface AsyncSnapshotsLocator {
+
+    /**
+     * Start looking up all captures of a URL.
+     *
+     * @param url
+     *            the URL, as used in {@link SnapshotsLocator#findLocations(String)}
+     * @return future of the found locations, completed exceptionally if the
+     *         lookup failed
+     */
+    CompletableFuture<SnapshotLocations> findLocationsAsync(String url);
+
+    /**
+     * Start looking up all captures of a URL given by its (already computed)
+     * SURT key.
+     */
+    CompletableFuture<SnapshotLocations> findLocationsBySurtAsync(String surt);
+}
@@ -3,7 +3,6 @@ package de.l3s.icrawl.snapshots;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
-import java.util.List;
 import java.util.Optional;
 
 import org.archive.url.URLKeyMaker;
@@ -30,10 +29,14 @@ public abstract class BaseSnapshotsLocator implements SnapshotsLocator {
     }
 
     @Override
-    public Iterable<SnaphotLocation> findLocations(String url) {
-        String surt = makeSurt(url);
+    public SnapshotLocations findLocations(String url) {
+        return findLocationsBySurt(makeSurt(url));
+    }
+
+    @Override
+    public SnapshotLocations findLocationsBySurt(String surt) {
         try (Timer.Context context = timer.time()) {
-            List<SnaphotLocation> result = findInternal(surt);
+            SnapshotLocations result = findInternal(surt);
             urlRate.mark();
             snapshots.update(result.size());
             return result;
@@ -55,12 +58,12 @@ public abstract class BaseSnapshotsLocator implements SnapshotsLocator {
         }
     }
 
-    protected abstract List<SnaphotLocation> findInternal(String surt) throws IOException;
+    protected abstract SnapshotLocations findInternal(String surt) throws IOException;
 
     protected abstract Optional<SnaphotLocation> findOneInternal(String surt, ZonedDateTime crawlTime)
             throws IOException;
 
-    private String makeSurt(String url) {
+    protected String makeSurt(String url) {
         try {
             return keyMaker.makeKey(url);
         } catch (URISyntaxException e) {
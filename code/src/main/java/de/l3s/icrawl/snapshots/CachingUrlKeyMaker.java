@@ -0,0 +1,44 @@
+package de.l3s.icrawl.snapshots;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.ExecutionException;
+
+import org.archive.url.URLKeyMaker;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Key maker that remembers the keys of recently seen URLs.
+ *
+ * Pages of a site share most of their navigation links, so the same URLs are
+ * converted over and over again. Invalid URLs are not cached.
+ */
+public class CachingUrlKeyMaker implements URLKeyMaker {
+    private final LoadingCache<String, String> keys;
+
+    public CachingUrlKeyMaker(URLKeyMaker keyMaker, long maximumSize) {
+        keys = CacheBuilder.newBuilder().maximumSize(maximumSize).build(new CacheLoader<String, String>() {
+            @Override
+            public String load(String url) throws URISyntaxException {
+                return keyMaker.makeKey(url);
+            }
+        });
+    }
+
+    @Override
+    public String makeKey(String url) throws URISyntaxException {
+        try {
+            return keys.get(url);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), URISyntaxException.class);
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+}
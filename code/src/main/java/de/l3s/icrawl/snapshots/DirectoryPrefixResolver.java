@@ -1,25 +1,33 @@
 package de.l3s.icrawl.snapshots;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.hadoop.fs.Path;
 
 public class DirectoryPrefixResolver implements LocationResolver {
 
     private final Path rootPath;
+    /** resolved paths by WARC file name, bounded by the number of files in the archive */
+    private final ConcurrentMap<String, String> resolvedFiles = new ConcurrentHashMap<>();
 
     public DirectoryPrefixResolver(String rootPath) {
         this.rootPath = new Path(rootPath);
     }
 
     @Override
-    public SnaphotLocation resolve(SnaphotLocation location) {
-        String warcFile = location.getWarcFile();
+    public String resolveWarcFile(String warcFile) {
+        return resolvedFiles.computeIfAbsent(warcFile, this::resolvePath);
+    }
+
+    private String resolvePath(String warcFile) {
         int pos = warcFile.indexOf("-");
         Path directory = rootPath;
         if (pos >= 0) {
             directory = new Path(rootPath, warcFile.substring(0, pos));
         }
 
-        return location.withWarcFile(new Path(directory, warcFile).toString());
+        return new Path(directory, warcFile).toString();
     }
 
 }
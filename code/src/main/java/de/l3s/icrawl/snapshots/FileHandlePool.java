@@ -0,0 +1,226 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Bounded pool of open WARC files, least recently used files are closed first.
+ *
+ * Handles are shared between threads: all reads go through positional
+ * {@link FSDataInputStream#read(long, byte[], int, int)} calls, which do not
+ * change the file position. A handle is closed when it has been evicted and
+ * the last stream using it has been closed.
+ */
+class FileHandlePool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileHandlePool.class);
+
+    static final class Handle {
+        private final FSDataInputStream stream;
+        private int references = 0;
+        private boolean evicted = false;
+
+        Handle(FSDataInputStream stream) {
+            this.stream = stream;
+        }
+    }
+
+    private final FileSystem fs;
+    private final int maxOpenFiles;
+    private final Map<Path, Handle> handles;
+    private final Meter hits;
+    private final Meter misses;
+    private final Counter openFiles;
+
+    FileHandlePool(FileSystem fs, int maxOpenFiles, MetricRegistry metrics) {
+        this.fs = fs;
+        this.maxOpenFiles = maxOpenFiles;
+        handles = new LinkedHashMap<>(maxOpenFiles * 2, 0.75f, true);
+        hits = metrics.meter(name(getClass(), "hits"));
+        misses = metrics.meter(name(getClass(), "misses"));
+        openFiles = metrics.counter(name(getClass(), "openFiles"));
+    }
+
+    /**
+     * Get a handle for a file, opening it if necessary. Every handle has to be
+     * {@link #release(Handle) released} after use.
+     */
+    Handle acquire(Path path) throws IOException {
+        synchronized (this) {
+            Handle handle = handles.get(path);
+            if (handle != null) {
+                hits.mark();
+                handle.references++;
+                return handle;
+            }
+        }
+        misses.mark();
+        // opening contacts the NameNode, so don't block other threads
+        FSDataInputStream stream = fs.open(path);
+        openFiles.inc();
+        List<Handle> evicted = new ArrayList<>();
+        Handle handle;
+        synchronized (this) {
+            handle = handles.get(path);
+            if (handle == null) {
+                handle = new Handle(stream);
+                handles.put(path, handle);
+                stream = null;
+                evictEldest(evicted);
+            }
+            handle.references++;
+        }
+        if (stream != null) {
+            // another thread opened the file in the meantime
+            closeQuietly(stream);
+        }
+        for (Handle h : evicted) {
+            closeQuietly(h.stream);
+        }
+        return handle;
+    }
+
+    /** Evict the least recently used files, collecting the ones that can be closed */
+    private void evictEldest(List<Handle> closable) {
+        Iterator<Handle> iterator = handles.values().iterator();
+        while (handles.size() > maxOpenFiles && iterator.hasNext()) {
+            Handle eldest = iterator.next();
+            iterator.remove();
+            eldest.evicted = true;
+            if (eldest.references == 0) {
+                closable.add(eldest);
+            }
+        }
+    }
+
+    void release(Handle handle) {
+        boolean close;
+        synchronized (this) {
+            handle.references--;
+            close = handle.evicted && handle.references == 0;
+        }
+        if (close) {
+            closeQuietly(handle.stream);
+        }
+    }
+
+    /**
+     * Read a range of a file with a single positional read.
+     */
+    void readFully(Path path, long offset, byte[] buffer, int length) throws IOException {
+        Handle handle = acquire(path);
+        try {
+            handle.stream.readFully(offset, buffer, 0, length);
+        } finally {
+            release(handle);
+        }
+    }
+
+    /**
+     * Open a stream that reads a file from the given offset.
+     *
+     * Closing the stream releases the underlying handle.
+     */
+    InputStream openStream(Path path, long offset) throws IOException {
+        return new PositionalInputStream(this, acquire(path), offset);
+    }
+
+    private void closeQuietly(FSDataInputStream stream) {
+        openFiles.dec();
+        try {
+            stream.close();
+        } catch (IOException e) {
+            logger.debug("Exception while closing file: ", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Handle> closable = new ArrayList<>();
+        synchronized (this) {
+            for (Handle handle : handles.values()) {
+                handle.evicted = true;
+                if (handle.references == 0) {
+                    closable.add(handle);
+                }
+            }
+            handles.clear();
+        }
+        for (Handle handle : closable) {
+            closeQuietly(handle.stream);
+        }
+    }
+
+    /**
+     * Input stream that uses positional reads on a shared handle.
+     */
+    static class PositionalInputStream extends InputStream {
+        private final FileHandlePool pool;
+        private final Handle handle;
+        private long position;
+        private boolean closed = false;
+
+        PositionalInputStream(FileHandlePool pool, Handle handle, long position) {
+            this.pool = pool;
+            this.handle = handle;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int read = read(b, 0, 1);
+            return read < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int read = handle.stream.read(position, b, off, len);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(handle);
+            }
+        }
+    }
+
+}
@@ -3,18 +3,21 @@ package de.l3s.icrawl.snapshots;
 import java.io.Closeable;
 import java.io.IOException;
 import java.time.ZonedDateTime;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
@@ -25,17 +28,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.collect.Lists;
 
 public class HBaseSnapshotsLocator extends BaseSnapshotsLocator implements SnapshotsLocator, Closeable {
     private static final Logger logger = LoggerFactory.getLogger(HBaseSnapshotsLocator.class);
-    private static final TableName TABLE_NAME = TableName.valueOf("CDX2");
-    private static final byte[] FAMILY = Bytes.toBytes("c");
-    private static final byte[] COL_OFFSET = Bytes.toBytes("offset");
-    private static final byte[] COL_CRAWL_TIME = Bytes.toBytes("ts");
-    private static final byte[] COL_MIME = Bytes.toBytes("mime");
-    private static final byte[] COL_ORIGINAL_URL = Bytes.toBytes("origurl");
-    private static final byte[] COL_WARC_FILE = Bytes.toBytes("filename");
+    static final TableName TABLE_NAME = TableName.valueOf("CDX2");
+    static final byte[] FAMILY = Bytes.toBytes("c");
+    static final byte[] COL_OFFSET = Bytes.toBytes("offset");
+    static final byte[] COL_CRAWL_TIME = Bytes.toBytes("ts");
+    static final byte[] COL_MIME = Bytes.toBytes("mime");
+    static final byte[] COL_ORIGINAL_URL = Bytes.toBytes("origurl");
+    static final byte[] COL_WARC_FILE = Bytes.toBytes("filename");
+    /** compressed record length, only present in newer imports */
+    static final byte[] COL_LENGTH = Bytes.toBytes("length");
+    /** HTTP status code, only present in newer imports */
+    static final byte[] COL_STATUS = Bytes.toBytes("status");
     private final Connection connection;
 
     public HBaseSnapshotsLocator(Configuration conf, MetricRegistry metrics) throws IOException {
@@ -43,8 +49,12 @@ public class HBaseSnapshotsLocator extends BaseSnapshotsLocator implements Snaps
     }
 
     public HBaseSnapshotsLocator(Configuration conf, URLKeyMaker keyMaker, MetricRegistry metrics) throws IOException {
+        this(ConnectionFactory.createConnection(conf), keyMaker, metrics);
+    }
+
+    HBaseSnapshotsLocator(Connection connection, URLKeyMaker keyMaker, MetricRegistry metrics) {
         super(keyMaker, metrics);
-        connection = ConnectionFactory.createConnection(conf);
+        this.connection = connection;
     }
 
     @Override
@@ -68,7 +78,7 @@ public class HBaseSnapshotsLocator extends BaseSnapshotsLocator implements Snaps
                     logger.info("Not a valid offset: {}", offset);
                     warcFileOffset = -1;
                 }
-                long length = -1;
+                long length = parseLength(getString(result, FAMILY, COL_LENGTH));
                 String mimeType = getString(result, FAMILY, COL_MIME);
                 String signature = null;
                 SnaphotLocation sl = new SnaphotLocation(originalUrl, crawlTime, warcFile, warcFileOffset, length,
@@ -83,48 +93,134 @@ public class HBaseSnapshotsLocator extends BaseSnapshotsLocator implements Snaps
     }
 
     @Override
-    protected List<SnaphotLocation> findInternal(String surt) throws IOException {
+    protected SnapshotLocations findInternal(String surt) throws IOException {
+        try (Table table = connection.getTable(TABLE_NAME)) {
+            return toLocations(surt, table.get(createGet(surt)));
+        }
+    }
+
+    /** Request for all captures of a URL. */
+    static Get createGet(String surt) throws IOException {
         Get get = new Get(Bytes.toBytes(surt));
         get.setMaxVersions();
+        return get;
+    }
 
-        try (Table table = connection.getTable(TABLE_NAME)) {
-            Result result = table.get(get);
+    /**
+     * Load the captures of all URLs whose key starts with the given prefix.
+     *
+     * @param prefix
+     *            the common key prefix, e.g. the host part of a SURT
+     * @param maxRows
+     *            maximum number of URLs to load
+     * @return the captures by SURT, in key order
+     */
+    Map<String, SnapshotLocations> scanPrefix(String prefix, int maxRows) throws IOException {
+        byte[] startRow = Bytes.toBytes(prefix);
+        Scan scan = new Scan(startRow, prefixEnd(startRow));
+        scan.setMaxVersions();
+        scan.setCaching(Math.min(maxRows, 1000));
+        Map<String, SnapshotLocations> rows = new LinkedHashMap<>();
+        try (Table table = connection.getTable(TABLE_NAME); ResultScanner scanner = table.getScanner(scan)) {
+            Result result;
+            while (rows.size() < maxRows && (result = scanner.next()) != null) {
+                String surt = Bytes.toString(result.getRow());
+                rows.put(surt, toLocations(surt, result));
+            }
+        }
+        return rows;
+    }
 
-            Map<Long, String> originalUrls = getValuesByVersion(result, FAMILY, COL_ORIGINAL_URL);
-            Map<Long, String> crawlTimes = getValuesByVersion(result, FAMILY, COL_CRAWL_TIME);
-            Map<Long, String> warcFiles = getValuesByVersion(result, FAMILY, COL_WARC_FILE);
-            Map<Long, String> offsets = getValuesByVersion(result, FAMILY, COL_OFFSET);
-            Map<Long, String> mimeTypes = getValuesByVersion(result, FAMILY, COL_MIME);
-
-            List<SnaphotLocation> results = Lists.newArrayListWithExpectedSize(originalUrls.size());
-            for (Long version : originalUrls.keySet()) {
-                Optional<ZonedDateTime> crawlTime = Utils.parseTimestamp(crawlTimes.get(version));
-                if (!crawlTime.isPresent()) {
-                    logger.info("No valid date for URL '{}'", surt);
-                }
-                String originalUrl = originalUrls.get(version);
-                String warcFile = warcFiles.get(version);
-                long warcFileOffset = Long.parseLong(offsets.get(version));
-                long length = -1;
-                String mimeType = mimeTypes.get(version);
-                String signature = null;
+    /** The first row key after all keys starting with <tt>prefix</tt>. */
+    private static byte[] prefixEnd(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] end = new byte[i + 1];
+                System.arraycopy(prefix, 0, end, 0, i + 1);
+                end[i]++;
+                return end;
+            }
+        }
+        // scan to the end of the table
+        return HConstants.EMPTY_END_ROW;
+    }
+
+    static SnapshotLocations toLocations(String surt, Result result) {
+        List<Cell> originalUrls = result.getColumnCells(FAMILY, COL_ORIGINAL_URL);
+        List<Cell> crawlTimes = result.getColumnCells(FAMILY, COL_CRAWL_TIME);
+        List<Cell> warcFiles = result.getColumnCells(FAMILY, COL_WARC_FILE);
+        List<Cell> offsets = result.getColumnCells(FAMILY, COL_OFFSET);
+        List<Cell> mimeTypes = result.getColumnCells(FAMILY, COL_MIME);
+        List<Cell> lengths = result.getColumnCells(FAMILY, COL_LENGTH);
+        List<Cell> statuses = result.getColumnCells(FAMILY, COL_STATUS);
+
+        SnapshotLocations.Builder results = SnapshotLocations.builder(originalUrls.size());
+        for (int i = 0; i < originalUrls.size(); i++) {
+            Cell originalUrl = originalUrls.get(i);
+            long version = originalUrl.getTimestamp();
+            long crawlTime = Utils.parseEpochSeconds(getString(findVersion(crawlTimes, i, version)));
+            if (crawlTime == SnapshotLocations.NO_CRAWL_TIME) {
+                logger.info("No valid date for URL '{}'", surt);
+            }
+            String warcFile = getString(findVersion(warcFiles, i, version));
+            long warcFileOffset = Long.parseLong(getString(findVersion(offsets, i, version)));
+            long length = lengths.isEmpty() ? -1 : parseLength(getString(findVersion(lengths, i, version)));
+            String mimeType = getString(findVersion(mimeTypes, i, version));
+            int status = statuses.isEmpty() ? SnapshotLocations.NO_STATUS
+                    : parseStatus(getString(findVersion(statuses, i, version)));
+
+            results.add(getString(originalUrl), crawlTime, warcFile, warcFileOffset, length, mimeType, status);
+        }
+        return results.build();
+    }
 
-                results.add(new SnaphotLocation(originalUrl, crawlTime.orElse(null), warcFile, warcFileOffset, length,
-                    mimeType, signature));
+    /**
+     * Find the cell of a column with the given version.
+     *
+     * All columns of a row are usually written together, so the cell at the
+     * same position is checked first.
+     */
+    private static Cell findVersion(List<Cell> cells, int expectedPosition, long version) {
+        if (expectedPosition < cells.size() && cells.get(expectedPosition).getTimestamp() == version) {
+            return cells.get(expectedPosition);
+        }
+        for (Cell cell : cells) {
+            if (cell.getTimestamp() == version) {
+                return cell;
             }
-            return results;
         }
+        return null;
     }
 
-    private Map<Long, String> getValuesByVersion(Result result, byte[] family, byte[] qualifier) {
-        Map<Long, String> values = new HashMap<>();
-        for (Cell cell : result.getColumnCells(family, qualifier)) {
-            values.put(cell.getTimestamp(), getString(cell));
+    /** @return the HTTP status or {@link SnapshotLocations#NO_STATUS} */
+    private static int parseStatus(String status) {
+        if (status == null) {
+            return SnapshotLocations.NO_STATUS;
+        }
+        try {
+            return Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+            // CDX files use '-' for records without a status, e.g. revisits
+            return SnapshotLocations.NO_STATUS;
         }
-        return values;
     }
 
-    private String getString(Cell cell) {
+    /** @return the record length or -1 if it is unknown */
+    private static long parseLength(String length) {
+        if (length == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(length);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String getString(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
         return Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
     }
 
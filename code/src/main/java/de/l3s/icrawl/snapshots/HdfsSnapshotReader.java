@@ -1,28 +1,59 @@
 package de.l3s.icrawl.snapshots;
 
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.archive.io.ArchiveReader;
 import org.archive.io.ArchiveReaderFactory;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.collect.Iterables;
+
+import de.l3s.icrawl.util.BufferPool;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
-public class HdfsSnapshotReader implements SnapshotReader {
-    private final FileSystem fs;
+/**
+ * Reads snapshots from WARC files on HDFS.
+ *
+ * Open files are kept in a shared pool, so one instance should be used by all
+ * threads.
+ */
+public class HdfsSnapshotReader implements SnapshotReader, Closeable {
+    public static final int DEFAULT_MAX_OPEN_FILES = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** records up to this size are read into pooled buffers */
+    private static final int MAX_POOLED_RECORD_SIZE = 1024 * 1024;
+    private final FileHandlePool pool;
+    private final BufferPool buffers = new BufferPool(MAX_POOLED_RECORD_SIZE, 64);
     private final Meter recordRate;
+    private final Meter boundedReads;
+    private final Histogram coalescedRecords;
     private final Timer timer;
 
     public HdfsSnapshotReader(Configuration conf, MetricRegistry metrics) throws IOException {
-        fs = FileSystem.get(conf);
+        this(conf, metrics, DEFAULT_MAX_OPEN_FILES);
+    }
+
+    public HdfsSnapshotReader(Configuration conf, MetricRegistry metrics, int maxOpenFiles) throws IOException {
+        this(FileSystem.get(conf), metrics, maxOpenFiles);
+    }
+
+    HdfsSnapshotReader(FileSystem fs, MetricRegistry metrics, int maxOpenFiles) {
+        pool = new FileHandlePool(fs, maxOpenFiles, metrics);
         recordRate = metrics.meter(name(getClass(), "records"));
+        boundedReads = metrics.meter(name(getClass(), "boundedReads"));
+        coalescedRecords = metrics.histogram(name(getClass(), "coalescedRecords"));
         timer = metrics.timer(name(getClass(), "ioTime"));
     }
 
@@ -30,9 +61,83 @@ public class HdfsSnapshotReader implements SnapshotReader {
     public ArchiveReader open(SnaphotLocation location) throws IOException {
         try (Timer.Context context = timer.time()) {
             recordRate.mark();
-            FSDataInputStream is = fs.open(new Path(location.getWarcFile()));
-            is.seek(location.getWarcFileOffset());
-            return ArchiveReaderFactory.get(location.getWarcFile(), is, false);
+            Path path = new Path(location.getWarcFile());
+            long length = location.getLength();
+            if (length > 0 && length <= Integer.MAX_VALUE) {
+                // the exact record range is known, so read it in one go
+                boundedReads.mark();
+                byte[] buffer = buffers.acquire((int) length);
+                try {
+                    pool.readFully(path, location.getWarcFileOffset(), buffer, (int) length);
+                } catch (IOException | RuntimeException e) {
+                    buffers.release(buffer);
+                    throw e;
+                }
+                return ArchiveReaderFactory.get(location.getWarcFile(), buffers.openStream(buffer, (int) length),
+                    false);
+            }
+            InputStream is = pool.openStream(path, location.getWarcFileOffset());
+            // positional reads are not buffered by HDFS
+            return ArchiveReaderFactory.get(location.getWarcFile(), new BufferedInputStream(is, BUFFER_SIZE), false);
+        }
+    }
+
+    @Override
+    public List<ArchiveReader> openAll(List<SnaphotLocation> locations) throws IOException {
+        if (locations.size() < 2) {
+            return SnapshotReader.super.openAll(locations);
         }
+        SnaphotLocation first = locations.get(0);
+        SnaphotLocation last = locations.get(locations.size() - 1);
+        long start = first.getWarcFileOffset();
+        long span = last.getWarcFileOffset() + last.getLength() - start;
+        if (span <= 0 || span > Integer.MAX_VALUE) {
+            return SnapshotReader.super.openAll(locations);
+        }
+        try (Timer.Context context = timer.time()) {
+            recordRate.mark(locations.size());
+            coalescedRecords.update(locations.size());
+            byte[] buffer = buffers.acquire((int) span);
+            int[] offsets = new int[locations.size()];
+            int[] lengths = new int[locations.size()];
+            try {
+                for (int i = 0; i < offsets.length; i++) {
+                    SnaphotLocation location = locations.get(i);
+                    offsets[i] = (int) (location.getWarcFileOffset() - start);
+                    lengths[i] = (int) location.getLength();
+                }
+                pool.readFully(new Path(first.getWarcFile()), start, buffer, (int) span);
+            } catch (IOException | RuntimeException e) {
+                buffers.release(buffer);
+                throw e;
+            }
+            List<InputStream> streams = buffers.openSlices(buffer, offsets, lengths);
+            List<ArchiveReader> readers = new ArrayList<>(streams.size());
+            try {
+                for (int i = 0; i < streams.size(); i++) {
+                    readers.add(ArchiveReaderFactory.get(first.getWarcFile(), streams.get(i), false));
+                }
+            } catch (IOException | RuntimeException e) {
+                // the buffer only returns to the pool when every slice is closed
+                closeAll(readers, streams.subList(readers.size(), streams.size()), e);
+                throw e;
+            }
+            return readers;
+        }
+    }
+
+    private static void closeAll(List<ArchiveReader> readers, List<InputStream> streams, Exception e) {
+        for (Closeable closeable : Iterables.<Closeable> concat(readers, streams)) {
+            try {
+                closeable.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
     }
 }
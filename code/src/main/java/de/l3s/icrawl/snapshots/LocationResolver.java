@@ -2,6 +2,10 @@ package de.l3s.icrawl.snapshots;
 
 public interface LocationResolver {
 
-    SnaphotLocation resolve(SnaphotLocation location);
+    String resolveWarcFile(String warcFile);
+
+    default SnaphotLocation resolve(SnaphotLocation location) {
+        return location.withWarcFile(resolveWarcFile(location.getWarcFile()));
+    }
 
 }
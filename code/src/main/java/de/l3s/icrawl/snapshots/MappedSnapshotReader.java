@@ -0,0 +1,134 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+
+import org.archive.io.ArchiveReader;
+import org.archive.io.ArchiveReaderFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import de.l3s.icrawl.util.ByteBufferBackedInputStream;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Reads snapshots from WARC and ARC files on the local file system.
+ *
+ * Files are memory mapped and records are read from slices of the mapping, so
+ * no data is copied before parsing. Files larger than 2 GiB can't be mapped
+ * as a whole, for these only the range of each record is mapped.
+ *
+ * Mappings are shared between threads, so one instance should be used by all
+ * threads.
+ */
+public class MappedSnapshotReader implements SnapshotReader, Closeable {
+    /** records of unknown length are read up to this size in large files */
+    private static final long MAX_UNKNOWN_RECORD_SIZE = 256 * 1024 * 1024;
+
+    private static final class MappedFile {
+        private final Path path;
+        /** the whole file, null if it is too large */
+        private final ByteBuffer buffer;
+        private final long size;
+
+        MappedFile(Path path, ByteBuffer buffer, long size) {
+            this.path = path;
+            this.buffer = buffer;
+            this.size = size;
+        }
+    }
+
+    private final LoadingCache<String, MappedFile> files;
+    private final Meter recordRate;
+    private final Meter regionMappings;
+
+    /**
+     * @param maxMappedFiles
+     *            number of file mappings to keep, unused mappings are released
+     *            by the garbage collector
+     */
+    public MappedSnapshotReader(int maxMappedFiles, MetricRegistry metrics) {
+        files = CacheBuilder.newBuilder().maximumSize(maxMappedFiles).build(new CacheLoader<String, MappedFile>() {
+            @Override
+            public MappedFile load(String warcFile) throws IOException {
+                return map(toLocalPath(warcFile));
+            }
+        });
+        recordRate = metrics.meter(name(getClass(), "records"));
+        regionMappings = metrics.meter(name(getClass(), "regionMappings"));
+    }
+
+    /** Accepts plain paths as well as <tt>file:</tt> URIs. */
+    static Path toLocalPath(String warcFile) {
+        return Paths.get(new org.apache.hadoop.fs.Path(warcFile).toUri().getPath());
+    }
+
+    private static MappedFile map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = size <= Integer.MAX_VALUE ? channel.map(MapMode.READ_ONLY, 0, size) : null;
+            return new MappedFile(path, buffer, size);
+        }
+    }
+
+    @Override
+    public ArchiveReader open(SnaphotLocation location) throws IOException {
+        recordRate.mark();
+        MappedFile file = getFile(location.getWarcFile());
+        long offset = location.getWarcFileOffset();
+        if (offset < 0 || offset >= file.size) {
+            throw new IOException("Offset " + offset + " outside of " + file.path);
+        }
+        long length = location.getLength() > 0 ? Math.min(location.getLength(), file.size - offset)
+                : file.size - offset;
+        ByteBuffer record;
+        if (file.buffer != null) {
+            ByteBuffer slice = file.buffer.duplicate();
+            slice.position((int) offset).limit((int) (offset + length));
+            record = slice.slice();
+        } else {
+            record = mapRegion(file.path, offset, Math.min(length, location.getLength() > 0 ? Integer.MAX_VALUE
+                    : MAX_UNKNOWN_RECORD_SIZE));
+        }
+        return ArchiveReaderFactory.get(location.getWarcFile(), new ByteBufferBackedInputStream(record), false);
+    }
+
+    private ByteBuffer mapRegion(Path path, long offset, long length) throws IOException {
+        regionMappings.mark();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, offset, length);
+        }
+    }
+
+    private MappedFile getFile(String warcFile) throws IOException {
+        try {
+            return files.get(warcFile);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        files.invalidateAll();
+    }
+
+}
@@ -7,30 +7,53 @@ import org.archive.format.http.HttpHeaders;
 import org.archive.format.text.charset.CharsetDetector;
 import org.archive.format.text.charset.StandardCharsetDetector;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Charset detector for HTML files.
  *
  * Will extract a charset for all files from the <tt>Content-Type</tt> header.
- * For HTML files also the content is used to find the charset.
- * 
+ * For HTML files also the content is used to find the charset: first a
+ * <tt>meta</tt> declaration, then a check whether the content is plain ASCII
+ * or valid UTF-8. Only content that is neither is passed to the statistical
+ * detection, and its result is cached per host, as sites usually use one
+ * encoding for all pages.
+ *
  * @see StandardCharsetDetector
  *
  */
 public class OnlyHtmlCharsetDetector extends CharsetDetector {
+    /** meta declarations are expected at the start of the document */
+    private static final int META_PREFIX = 16 * 1024;
+    private static final String UTF_8 = "UTF-8";
+    private final Cache<String, String> hostCharsets;
+
+    public OnlyHtmlCharsetDetector() {
+        this(10_000);
+    }
+
+    public OnlyHtmlCharsetDetector(int maxHosts) {
+        hostCharsets = CacheBuilder.newBuilder().maximumSize(maxHosts).build();
+    }
 
     @Override
     public String getCharset(byte[] buffer, int len, HttpHeaders headers) throws IOException {
+        return getCharset(buffer, len, headers, null);
+    }
+
+    /**
+     * @param url
+     *            the URL of the document, used to cache detected charsets per
+     *            host, may be null
+     */
+    public String getCharset(byte[] buffer, int len, HttpHeaders headers, String url) throws IOException {
         String charSet = getCharsetFromHeaders(headers);
         if (charSet == null) {
             String contentType = headers.getValueCaseInsensitive(HTTP_CONTENT_TYPE_HEADER);
             if (contentType != null && contentType.toLowerCase(Locale.ENGLISH).contains("html")) {
-                charSet = getCharsetFromMeta(buffer, len);
-                if (charSet == null) {
-                    charSet = getCharsetFromBytes(buffer, len);
-                    if (charSet == null) {
-                        charSet = DEFAULT_CHARSET;
-                    }
-                }
+                charSet = getCharsetFromContent(buffer, len, host(url));
             } else {
                 charSet = DEFAULT_CHARSET;
             }
@@ -38,4 +61,113 @@ public class OnlyHtmlCharsetDetector extends CharsetDetector {
         return charSet;
     }
 
+    private String getCharsetFromContent(byte[] buffer, int len, String host) throws IOException {
+        String charSet = getCharsetFromMeta(buffer, Math.min(len, META_PREFIX));
+        if (charSet != null) {
+            return charSet;
+        }
+        switch (classify(buffer, len)) {
+        case ASCII:
+            // compatible with every charset the host might use
+            String known = host != null ? hostCharsets.getIfPresent(host) : null;
+            return known != null ? known : DEFAULT_CHARSET;
+        case UTF_8:
+            return UTF_8;
+        default:
+            break;
+        }
+        if (host != null) {
+            charSet = hostCharsets.getIfPresent(host);
+            if (charSet != null) {
+                return charSet;
+            }
+        }
+        charSet = getCharsetFromBytes(buffer, len);
+        if (charSet == null) {
+            return DEFAULT_CHARSET;
+        }
+        if (host != null) {
+            hostCharsets.put(host, charSet);
+        }
+        return charSet;
+    }
+
+    @VisibleForTesting
+    enum Encoding {
+        ASCII, UTF_8, UNKNOWN
+    }
+
+    /**
+     * Check whether the bytes are ASCII or well-formed UTF-8. A multi-byte
+     * sequence cut off at the end of the buffer is accepted.
+     */
+    @VisibleForTesting
+    static Encoding classify(byte[] buffer, int len) {
+        int i = 0;
+        // fast scan over the ASCII prefix
+        while (i < len && buffer[i] >= 0) {
+            i++;
+        }
+        if (i == len) {
+            return Encoding.ASCII;
+        }
+        while (i < len) {
+            int b = buffer[i] & 0xFF;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            int continuation;
+            int min;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+                min = 0x80;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+                min = 0x800;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+                min = 0x10000;
+            } else {
+                return Encoding.UNKNOWN;
+            }
+            int codePoint = b & (0x3F >> continuation);
+            int end = Math.min(i + 1 + continuation, len);
+            for (int j = i + 1; j < end; j++) {
+                int c = buffer[j] & 0xFF;
+                if ((c & 0xC0) != 0x80) {
+                    return Encoding.UNKNOWN;
+                }
+                codePoint = (codePoint << 6) | (c & 0x3F);
+            }
+            if (end - i == continuation + 1
+                    && (codePoint < min || codePoint > 0x10FFFF || (codePoint >= 0xD800 && codePoint <= 0xDFFF))) {
+                return Encoding.UNKNOWN;
+            }
+            i = end;
+        }
+        return Encoding.UTF_8;
+    }
+
+    @VisibleForTesting
+    static String host(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return null;
+        }
+        start += 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        return end > start ? url.substring(start, end).toLowerCase(Locale.ROOT) : null;
+    }
+
 }
@@ -0,0 +1,187 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.archive.url.URLKeyMaker;
+import org.archive.url.WaybackURLKeyMaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Locator that loads the index range of a whole host on the first lookup.
+ *
+ * SURT keys sort by host, so all URLs of a host form one contiguous range in
+ * the CDX table. When a URL of a host that has not been seen before is looked
+ * up, the range is scanned in the background and put into the lookup cache.
+ * Following lookups of sibling URLs (e.g. outlinks of the page) are then served
+ * from memory. Hosts with at most <tt>maxHostRows</tt> URLs are cached
+ * completely, so a URL missing from such a range has no captures.
+ */
+public class PrefetchingSnapshotsLocator extends BaseSnapshotsLocator implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchingSnapshotsLocator.class);
+    private final HBaseSnapshotsLocator delegate;
+    private final int maxHostRows;
+    /** prefetched index ranges by host */
+    private final Cache<String, HostRange> hostRanges;
+    /** results of single lookups by SURT */
+    private final Cache<String, SnapshotLocations> urls;
+    private final Map<String, Boolean> prefetching = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor prefetchThreads;
+    private final Meter hits;
+    private final Meter negativeHits;
+    private final Meter misses;
+    private final Meter prefetchFailures;
+    private final Histogram prefetchedRows;
+
+    public PrefetchingSnapshotsLocator(Configuration conf, MetricRegistry metrics, long maxCachedCaptures,
+            int maxHostRows, int numThreads) throws IOException {
+        this(new HBaseSnapshotsLocator(conf, metrics), new WaybackURLKeyMaker(), metrics, maxCachedCaptures,
+            maxHostRows, numThreads);
+    }
+
+    PrefetchingSnapshotsLocator(HBaseSnapshotsLocator delegate, URLKeyMaker keyMaker, MetricRegistry metrics,
+            long maxCachedCaptures, int maxHostRows, int numThreads) {
+        super(keyMaker, metrics);
+        this.delegate = delegate;
+        this.maxHostRows = maxHostRows;
+        hostRanges = CacheBuilder.newBuilder()
+            .maximumWeight(maxCachedCaptures)
+            .weigher((String host, HostRange range) -> range.weight)
+            .build();
+        urls = CacheBuilder.newBuilder()
+            .maximumWeight(maxCachedCaptures / 4 + 1)
+            .weigher((String surt, SnapshotLocations locations) -> locations.size() + 1)
+            .build();
+        prefetchThreads = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(numThreads * 16),
+            new ThreadFactoryBuilder().setNameFormat("cdx-prefetch-%d").setDaemon(true).build());
+        hits = metrics.meter(name(getClass(), "hits"));
+        negativeHits = metrics.meter(name(getClass(), "negativeHits"));
+        misses = metrics.meter(name(getClass(), "misses"));
+        prefetchFailures = metrics.meter(name(getClass(), "prefetchFailures"));
+        prefetchedRows = metrics.histogram(name(getClass(), "prefetchedRows"));
+    }
+
+    @Override
+    protected SnapshotLocations findInternal(String surt) throws IOException {
+        String host = hostPrefix(surt);
+        HostRange range = host != null ? hostRanges.getIfPresent(host) : null;
+        if (range != null) {
+            SnapshotLocations cached = range.rows.get(surt);
+            if (cached != null) {
+                hits.mark();
+                return cached;
+            } else if (range.complete) {
+                negativeHits.mark();
+                return SnapshotLocations.empty();
+            }
+        }
+        SnapshotLocations cached = urls.getIfPresent(surt);
+        if (cached != null) {
+            hits.mark();
+            return cached;
+        }
+        misses.mark();
+        if (host != null && range == null) {
+            prefetch(host);
+        }
+        SnapshotLocations locations = delegate.findInternal(surt);
+        urls.put(surt, locations);
+        return locations;
+    }
+
+    @Override
+    protected Optional<SnaphotLocation> findOneInternal(String surt, ZonedDateTime crawlTime) throws IOException {
+        SnapshotLocations locations = findInternal(surt);
+        long crawlTimeSeconds = crawlTime.toEpochSecond();
+        for (int i = 0; i < locations.size(); i++) {
+            if (locations.getCrawlTimeSeconds(i) == crawlTimeSeconds) {
+                return Optional.of(locations.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void prefetch(String host) {
+        if (prefetching.putIfAbsent(host, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            prefetchThreads.execute(() -> {
+                try {
+                    loadHost(host);
+                } finally {
+                    prefetching.remove(host);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // prefetching is best effort, the next lookup will try again
+            prefetching.remove(host);
+        }
+    }
+
+    void loadHost(String host) {
+        try {
+            Map<String, SnapshotLocations> rows = delegate.scanPrefix(host, maxHostRows + 1);
+            hostRanges.put(host, new HostRange(rows, rows.size() <= maxHostRows));
+            prefetchedRows.update(rows.size());
+        } catch (IOException | RuntimeException e) {
+            prefetchFailures.mark();
+            logger.debug("Could not prefetch index range of host {}: ", host, e);
+        }
+    }
+
+    private static class HostRange {
+        final Map<String, SnapshotLocations> rows;
+        /** true if all URLs of the host are contained */
+        final boolean complete;
+        final int weight;
+
+        HostRange(Map<String, SnapshotLocations> rows, boolean complete) {
+            this.rows = rows;
+            this.complete = complete;
+            int captures = 1;
+            for (SnapshotLocations locations : rows.values()) {
+                captures += locations.size() + 1;
+            }
+            this.weight = captures;
+        }
+    }
+
+    /**
+     * Get the host part of a SURT, e.g. <tt>org,example)</tt> for
+     * <tt>org,example)/foo</tt>.
+     *
+     * @return the host prefix or null if the SURT has no host part
+     */
+    static String hostPrefix(String surt) {
+        int end = surt.indexOf(')');
+        return end > 0 ? surt.substring(0, end + 1) : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        prefetchThreads.shutdownNow();
+        delegate.close();
+    }
+
+}
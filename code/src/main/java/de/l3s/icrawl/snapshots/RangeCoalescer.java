@@ -0,0 +1,82 @@
+package de.l3s.icrawl.snapshots;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Groups records that are close together in the same WARC file, so they can
+ * be fetched with one read.
+ *
+ * Records without a known length are never grouped.
+ */
+public class RangeCoalescer {
+    /** Never merge any records */
+    public static final RangeCoalescer NONE = new RangeCoalescer(-1, 0);
+    private final long maxGap;
+    private final long maxReadSize;
+
+    /**
+     * @param maxGap
+     *            maximum number of unused bytes between two records of a group
+     * @param maxReadSize
+     *            maximum size of the range covered by a group
+     */
+    public RangeCoalescer(long maxGap, long maxReadSize) {
+        Preconditions.checkArgument(maxReadSize <= Integer.MAX_VALUE, "maxReadSize too large: %s", maxReadSize);
+        this.maxGap = maxGap;
+        this.maxReadSize = maxReadSize;
+    }
+
+    /**
+     * Group the given locations.
+     *
+     * @return groups of positions in <tt>locations</tt>, each sorted by offset
+     */
+    public List<int[]> coalesce(List<SnaphotLocation> locations) {
+        Integer[] order = new Integer[locations.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer i) -> locations.get(i).getWarcFile())
+            .thenComparingLong(i -> locations.get(i).getWarcFileOffset()));
+
+        List<int[]> groups = new ArrayList<>();
+        int[] group = new int[order.length];
+        int groupSize = 0;
+        long groupStart = 0;
+        long groupEnd = 0;
+        for (Integer index : order) {
+            SnaphotLocation location = locations.get(index);
+            long start = location.getWarcFileOffset();
+            long end = start + location.getLength();
+            if (groupSize > 0 && !(canMerge(locations.get(group[groupSize - 1]), location, groupEnd)
+                    && end - groupStart <= maxReadSize)) {
+                groups.add(Arrays.copyOf(group, groupSize));
+                groupSize = 0;
+            }
+            if (groupSize == 0) {
+                groupStart = start;
+                groupEnd = end;
+            } else {
+                groupEnd = Math.max(groupEnd, end);
+            }
+            group[groupSize++] = index;
+        }
+        if (groupSize > 0) {
+            groups.add(Arrays.copyOf(group, groupSize));
+        }
+        return groups;
+    }
+
+    private boolean canMerge(SnaphotLocation previous, SnaphotLocation next, long groupEnd) {
+        return previous.getLength() > 0 && next.getLength() > 0
+                && previous.getWarcFile().equals(next.getWarcFile())
+                && next.getWarcFileOffset() >= groupEnd
+                && next.getWarcFileOffset() - groupEnd <= maxGap;
+    }
+
+}
@@ -1,16 +1,35 @@
 package de.l3s.icrawl.snapshots;
 
+import java.io.Closeable;
+import java.nio.charset.Charset;
 import java.time.ZonedDateTime;
 import java.util.Map;
 
-public class Snapshot {
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import de.l3s.icrawl.util.PooledByteBuffer;
+
+/**
+ * A parsed archive record.
+ *
+ * Text content is a <tt>String</tt>, other content a {@link PooledByteBuffer}
+ * that is returned to its pool when the snapshot is closed.
+ *
+ * Snapshots read from an archive keep the raw payload: text is only decoded
+ * and headers are only copied into a map when they are first accessed.
+ */
+public class Snapshot implements Closeable {
 
     private final String originalUrl;
     private final ZonedDateTime crawlTime;
     private final int status;
     private final String mimeType;
-    private final Map<String, String> headers;
-    private final Object content;
+    private final Supplier<Map<String, String>> headers;
+    private final Supplier<Object> content;
+    private final PooledByteBuffer rawContent;
+    private boolean closed = false;
+    private final Charset charset;
 
     public Snapshot(String originalUrl, ZonedDateTime crawlTime, int status, String mimeType,
             Map<String, String> headers, Object content) {
@@ -18,8 +37,32 @@ public class Snapshot {
         this.crawlTime = crawlTime;
         this.status = status;
         this.mimeType = mimeType;
-        this.headers = headers;
-        this.content = content;
+        this.headers = Suppliers.ofInstance(headers);
+        this.content = Suppliers.ofInstance(content);
+        this.rawContent = content instanceof PooledByteBuffer ? (PooledByteBuffer) content : null;
+        this.charset = null;
+    }
+
+    /**
+     * Create a snapshot that owns a raw payload.
+     *
+     * @param charset
+     *            the charset of text content, null for binary content
+     */
+    Snapshot(String originalUrl, ZonedDateTime crawlTime, int status, String mimeType,
+            Supplier<Map<String, String>> headers, PooledByteBuffer rawContent, Charset charset) {
+        this.originalUrl = originalUrl;
+        this.crawlTime = crawlTime;
+        this.status = status;
+        this.mimeType = mimeType;
+        this.headers = Suppliers.memoize(headers);
+        this.rawContent = rawContent;
+        this.charset = charset;
+        if (charset != null) {
+            this.content = Suppliers.memoize(() -> rawContent.decode(charset));
+        } else {
+            this.content = Suppliers.ofInstance(rawContent);
+        }
     }
 
     public String getOriginalUrl() {
@@ -39,11 +82,38 @@ public class Snapshot {
     }
 
     public Map<String, String> getHeaders() {
-        return headers;
+        return headers.get();
     }
 
     public Object getContent() {
-        return content;
+        return content.get();
+    }
+
+    /**
+     * @return the payload as it was archived, or null if the snapshot was
+     *         created from decoded content
+     */
+    public PooledByteBuffer getRawContent() {
+        return rawContent;
+    }
+
+    /**
+     * @return the charset of the raw payload, or null if it is not text
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Release pooled content, the content must not be used afterwards.
+     * Closing a snapshot again has no effect.
+     */
+    @Override
+    public void close() {
+        if (rawContent != null && !closed) {
+            closed = true;
+            rawContent.release();
+        }
     }
 
     @Override
@@ -0,0 +1,254 @@
+package de.l3s.icrawl.snapshots;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact list of snapshot locations.
+ *
+ * The fields of all locations are stored in parallel primitive arrays: WARC
+ * file names and MIME types are interned into process-wide ID tables and crawl
+ * times are kept as epoch seconds. {@link SnaphotLocation} objects are only
+ * created when a location is actually accessed through {@link #get(int)}.
+ */
+public final class SnapshotLocations implements Iterable<SnaphotLocation> {
+    /** Crawl time value for locations without a (valid) crawl time */
+    public static final long NO_CRAWL_TIME = Long.MIN_VALUE;
+    /** Status value for locations without a known HTTP status */
+    public static final int NO_STATUS = -1;
+    private static final StringIdTable WARC_FILES = new StringIdTable(1 << 16);
+    private static final StringIdTable MIME_TYPES = new StringIdTable(64);
+    private static final SnapshotLocations EMPTY = new Builder(0).build();
+
+    public static class Builder {
+        private String[] urls;
+        private long[] crawlTimes;
+        private int[] warcFiles;
+        private long[] offsets;
+        private long[] lengths;
+        private int[] mimeTypes;
+        private int[] statuses;
+        private int size = 0;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            urls = new String[capacity];
+            crawlTimes = new long[capacity];
+            warcFiles = new int[capacity];
+            offsets = new long[capacity];
+            lengths = new long[capacity];
+            mimeTypes = new int[capacity];
+            statuses = new int[capacity];
+        }
+
+        public Builder add(String url, long crawlTimeSeconds, String warcFile, long offset, long length,
+                String mimeType) {
+            return add(url, crawlTimeSeconds, warcFile, offset, length, mimeType, NO_STATUS);
+        }
+
+        public Builder add(String url, long crawlTimeSeconds, String warcFile, long offset, long length,
+                String mimeType, int status) {
+            if (size == urls.length) {
+                grow();
+            }
+            // captures of one URL almost always share the original URL
+            if (size > 0 && url != null && url.equals(urls[size - 1])) {
+                urls[size] = urls[size - 1];
+            } else {
+                urls[size] = url;
+            }
+            crawlTimes[size] = crawlTimeSeconds;
+            warcFiles[size] = WARC_FILES.intern(warcFile);
+            offsets[size] = offset;
+            lengths[size] = length;
+            mimeTypes[size] = MIME_TYPES.intern(mimeType);
+            statuses[size] = status;
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            int capacity = urls.length * 2;
+            urls = Arrays.copyOf(urls, capacity);
+            crawlTimes = Arrays.copyOf(crawlTimes, capacity);
+            warcFiles = Arrays.copyOf(warcFiles, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            mimeTypes = Arrays.copyOf(mimeTypes, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+
+        public SnapshotLocations build() {
+            return new SnapshotLocations(urls, crawlTimes, warcFiles, offsets, lengths, mimeTypes, statuses, size);
+        }
+    }
+
+    private final String[] urls;
+    private final long[] crawlTimes;
+    private final int[] warcFiles;
+    private final long[] offsets;
+    private final long[] lengths;
+    private final int[] mimeTypes;
+    private final int[] statuses;
+    private final int size;
+
+    private SnapshotLocations(String[] urls, long[] crawlTimes, int[] warcFiles, long[] offsets, long[] lengths,
+            int[] mimeTypes, int[] statuses, int size) {
+        this.urls = urls;
+        this.crawlTimes = crawlTimes;
+        this.warcFiles = warcFiles;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.mimeTypes = mimeTypes;
+        this.statuses = statuses;
+        this.size = size;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static SnapshotLocations empty() {
+        return EMPTY;
+    }
+
+    public static SnapshotLocations of(SnaphotLocation location) {
+        return new Builder(1).add(location.getUrl(), toEpochSeconds(location.getCrawlTime()), location.getWarcFile(),
+            location.getWarcFileOffset(), location.getLength(), location.getMimeType()).build();
+    }
+
+    public static long toEpochSeconds(ZonedDateTime crawlTime) {
+        return crawlTime != null ? crawlTime.toEpochSecond() : NO_CRAWL_TIME;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getUrl(int index) {
+        return urls[checkIndex(index)];
+    }
+
+    /**
+     * @return the crawl time in seconds since the epoch or
+     *         {@link #NO_CRAWL_TIME}
+     */
+    public long getCrawlTimeSeconds(int index) {
+        return crawlTimes[checkIndex(index)];
+    }
+
+    public ZonedDateTime getCrawlTime(int index) {
+        long seconds = getCrawlTimeSeconds(index);
+        return seconds != NO_CRAWL_TIME ? ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds), ZoneOffset.UTC) : null;
+    }
+
+    public String getWarcFile(int index) {
+        return WARC_FILES.get(warcFiles[checkIndex(index)]);
+    }
+
+    public long getWarcFileOffset(int index) {
+        return offsets[checkIndex(index)];
+    }
+
+    public long getLength(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    public String getMimeType(int index) {
+        return MIME_TYPES.get(mimeTypes[checkIndex(index)]);
+    }
+
+    /**
+     * @return the HTTP status of the capture or {@link #NO_STATUS}
+     */
+    public int getStatus(int index) {
+        return statuses[checkIndex(index)];
+    }
+
+    /**
+     * Materialize a single location.
+     */
+    public SnaphotLocation get(int index) {
+        return new SnaphotLocation(getUrl(index), getCrawlTime(index), getWarcFile(index), getWarcFileOffset(index),
+            getLength(index), getMimeType(index), null);
+    }
+
+    /**
+     * Create a list containing only the locations at the given positions.
+     *
+     * @param indices
+     *            positions in this list, the first <tt>count</tt> are used
+     * @param count
+     *            number of selected locations
+     * @return a new list with the selected locations in the order of
+     *         <tt>indices</tt>
+     */
+    public SnapshotLocations select(int[] indices, int count) {
+        String[] selUrls = new String[count];
+        long[] selCrawlTimes = new long[count];
+        int[] selWarcFiles = new int[count];
+        long[] selOffsets = new long[count];
+        long[] selLengths = new long[count];
+        int[] selMimeTypes = new int[count];
+        int[] selStatuses = new int[count];
+        for (int i = 0; i < count; i++) {
+            int idx = checkIndex(indices[i]);
+            selUrls[i] = urls[idx];
+            selCrawlTimes[i] = crawlTimes[idx];
+            selWarcFiles[i] = warcFiles[idx];
+            selOffsets[i] = offsets[idx];
+            selLengths[i] = lengths[idx];
+            selMimeTypes[i] = mimeTypes[idx];
+            selStatuses[i] = statuses[idx];
+        }
+        return new SnapshotLocations(selUrls, selCrawlTimes, selWarcFiles, selOffsets, selLengths, selMimeTypes,
+            selStatuses, count);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return index;
+    }
+
+    @Override
+    public Iterator<SnaphotLocation> iterator() {
+        return new Iterator<SnaphotLocation>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public SnaphotLocation next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -1,6 +1,8 @@
 package de.l3s.icrawl.snapshots;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.archive.io.ArchiveReader;
 
@@ -16,4 +18,35 @@ public interface SnapshotReader {
      * @throws IOException
      */
     ArchiveReader open(SnaphotLocation location) throws IOException;
+
+    /**
+     * Open readers for several records of the same file.
+     *
+     * Implementations may fetch all records with a single read. The caller is
+     * responsible for closing all returned readers.
+     *
+     * @param locations
+     *            locations with known lengths in the same file, sorted by
+     *            offset
+     * @return readers in the order of <tt>locations</tt>
+     * @throws IOException
+     */
+    default List<ArchiveReader> openAll(List<SnaphotLocation> locations) throws IOException {
+        List<ArchiveReader> readers = new ArrayList<>(locations.size());
+        try {
+            for (SnaphotLocation location : locations) {
+                readers.add(open(location));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ArchiveReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        return readers;
+    }
 }
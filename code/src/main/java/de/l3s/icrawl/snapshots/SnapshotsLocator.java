@@ -5,7 +5,12 @@ import java.util.Optional;
 
 public interface SnapshotsLocator {
 
-    Iterable<SnaphotLocation> findLocations(String url);
+    SnapshotLocations findLocations(String url);
+
+    /**
+     * Find all captures of a URL given by its (already computed) SURT key.
+     */
+    SnapshotLocations findLocationsBySurt(String surt);
 
     Optional<SnaphotLocation> findLocation(String url, ZonedDateTime crawlTime);
 }
@@ -0,0 +1,62 @@
+package de.l3s.icrawl.snapshots;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe table that maps strings to dense int IDs.
+ *
+ * IDs are never released, so this is only suitable for small vocabularies such
+ * as WARC file names or MIME types.
+ */
+final class StringIdTable {
+    static final int NO_ID = -1;
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names;
+    private int size = 0;
+
+    StringIdTable(int expectedSize) {
+        names = new String[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * Get the ID of a string, assigning a new ID if the string is not yet
+     * known.
+     *
+     * @return the ID or {@link #NO_ID} for <tt>null</tt>
+     */
+    int intern(String name) {
+        if (name == null) {
+            return NO_ID;
+        }
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            String[] current = names;
+            if (newId == current.length) {
+                current = Arrays.copyOf(current, newId * 2);
+            }
+            current[newId] = name;
+            names = current;
+            size++;
+            ids.put(name, newId);
+            return newId;
+        }
+    }
+
+    String get(int id) {
+        return id == NO_ID ? null : names[id];
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
@@ -46,6 +46,24 @@ public final class Utils {
         }
     }
 
+    /**
+     * Parse a CDX timestamp into seconds since the epoch.
+     *
+     * @return the timestamp or {@link SnapshotLocations#NO_CRAWL_TIME} if it
+     *         is missing or invalid
+     */
+    public static long parseEpochSeconds(String timestamp) {
+        if (timestamp == null) {
+            return SnapshotLocations.NO_CRAWL_TIME;
+        }
+        try {
+            return LocalDateTime.parse(timestamp, dateFormatter).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            logger.debug("Invalid date header '{}'", timestamp, e);
+            return SnapshotLocations.NO_CRAWL_TIME;
+        }
+    }
+
     public static String toString(ZonedDateTime crawlTime) {
         return crawlTime.format(dateFormatter);
     }
@@ -0,0 +1,127 @@
+package de.l3s.icrawl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Pool of reusable byte arrays.
+ *
+ * Buffers are grouped into power-of-two size classes. Requests larger than the
+ * maximum pooled size are allocated directly and dropped on release.
+ */
+public class BufferPool {
+    private static final int MIN_SIZE_CLASS = 12; // 4 KiB
+    private final int maxPooledSize;
+    private final int maxBuffersPerClass;
+    private final Deque<byte[]>[] free;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(int maxPooledSize, int maxBuffersPerClass) {
+        Preconditions.checkArgument(maxPooledSize > 0, "maxPooledSize must be positive");
+        this.maxPooledSize = maxPooledSize;
+        this.maxBuffersPerClass = maxBuffersPerClass;
+        free = new Deque[sizeClass(maxPooledSize) + 1];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<>();
+        }
+    }
+
+    private static int sizeClass(int size) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(size - 1, 1));
+        return Math.max(bits - MIN_SIZE_CLASS, 0);
+    }
+
+    /**
+     * Get a buffer of at least the given size. The content is undefined.
+     */
+    public byte[] acquire(int minSize) {
+        if (minSize > maxPooledSize) {
+            return new byte[minSize];
+        }
+        int sizeClass = sizeClass(minSize);
+        Deque<byte[]> buffers = free[sizeClass];
+        synchronized (buffers) {
+            byte[] buffer = buffers.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[1 << (sizeClass + MIN_SIZE_CLASS)];
+    }
+
+    /**
+     * Return a buffer to the pool. The buffer must not be used afterwards.
+     */
+    public void release(byte[] buffer) {
+        int length = buffer.length;
+        // only keep buffers that were allocated by this pool
+        if (Integer.bitCount(length) != 1 || length < (1 << MIN_SIZE_CLASS) || sizeClass(length) >= free.length) {
+            return;
+        }
+        Deque<byte[]> buffers = free[sizeClass(length)];
+        synchronized (buffers) {
+            if (buffers.size() < maxBuffersPerClass) {
+                buffers.addFirst(buffer);
+            }
+        }
+    }
+
+    /**
+     * Hand the first <tt>length</tt> bytes of a buffer to a reference counted
+     * owner.
+     */
+    public PooledByteBuffer wrap(byte[] buffer, int length) {
+        return new PooledByteBuffer(this, buffer, length);
+    }
+
+    /**
+     * Read the first <tt>length</tt> bytes of a buffer, the buffer is released
+     * when the stream is closed.
+     */
+    public InputStream openStream(byte[] buffer, int length) {
+        return new ByteArrayInputStream(buffer, 0, length) {
+            private boolean released = false;
+
+            @Override
+            public void close() {
+                if (!released) {
+                    released = true;
+                    release(buffer);
+                }
+            }
+        };
+    }
+
+    /**
+     * Read slices of a shared buffer, the buffer is released when all streams
+     * are closed.
+     */
+    public List<InputStream> openSlices(byte[] buffer, int[] offsets, int[] lengths) {
+        AtomicInteger references = new AtomicInteger(offsets.length);
+        List<InputStream> streams = new ArrayList<>(offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            streams.add(new ByteArrayInputStream(buffer, offsets[i], lengths[i]) {
+                private boolean released = false;
+
+                @Override
+                public void close() {
+                    if (!released) {
+                        released = true;
+                        if (references.decrementAndGet() == 0) {
+                            release(buffer);
+                        }
+                    }
+                }
+            });
+        }
+        return streams;
+    }
+
+}
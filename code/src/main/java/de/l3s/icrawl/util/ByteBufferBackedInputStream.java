@@ -31,4 +31,9 @@ public class ByteBufferBackedInputStream extends InputStream {
         buf.get(bytes, off, readLen);
         return readLen;
     }
+
+    @Override
+    public int available() throws IOException {
+        return buf.remaining();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package de.l3s.icrawl.util;
+
+import java.util.Set;
+
+import org.jsoup.nodes.Attributes;
+import org.jsoup.parser.Parser;
+
+import com.google.common.collect.ImmutableSet;
+
+import static java.util.Locale.ROOT;
+
+/**
+ * Streaming HTML tokenizer that reports tags and text without building a DOM.
+ *
+ * Only tokenizes, the tree construction rules of HTML (implied and misnested
+ * tags) are left to the handler. Comments, doctypes and processing
+ * instructions are skipped, the content of script and style elements is not
+ * reported.
+ */
+public final class HtmlTokenizer {
+
+    /** Receives the tokens in document order */
+    public interface Handler {
+        /**
+         * @param name
+         *            the lower case tag name
+         * @param attributes
+         *            decoded attributes with lower case names
+         */
+        void startTag(String name, Attributes attributes, boolean selfClosing);
+
+        /** @param name the lower case tag name */
+        void endTag(String name);
+
+        /** @param text text with decoded entities, may be split in several calls */
+        void text(String text);
+    }
+
+    /** elements with content that is neither parsed nor reported */
+    private static final Set<String> RAW_TEXT_ELEMENTS = ImmutableSet.of("script", "style", "xmp", "iframe",
+        "noembed", "noframes");
+    /** elements with content that is reported as text without parsing tags */
+    private static final Set<String> RCDATA_ELEMENTS = ImmutableSet.of("title", "textarea");
+
+    private final String html;
+    private final Handler handler;
+    private final int length;
+    private int pos = 0;
+
+    private HtmlTokenizer(String html, Handler handler) {
+        this.html = html;
+        this.handler = handler;
+        this.length = html.length();
+    }
+
+    public static void tokenize(String html, Handler handler) {
+        new HtmlTokenizer(html, handler).run();
+    }
+
+    private void run() {
+        int textStart = 0;
+        while (pos < length) {
+            int lt = html.indexOf('<', pos);
+            if (lt < 0 || lt + 1 >= length) {
+                break;
+            }
+            char next = html.charAt(lt + 1);
+            if (isTagNameStart(next)) {
+                emitText(textStart, lt);
+                pos = lt + 1;
+                String name = startTag();
+                if ("plaintext".equals(name)) {
+                    emitText(pos, length);
+                    pos = length;
+                } else if (RAW_TEXT_ELEMENTS.contains(name)) {
+                    pos = skipTo(name, false);
+                } else if (RCDATA_ELEMENTS.contains(name)) {
+                    pos = skipTo(name, true);
+                }
+            } else if (next == '/' && lt + 2 < length && isTagNameStart(html.charAt(lt + 2))) {
+                emitText(textStart, lt);
+                pos = lt + 2;
+                handler.endTag(tagName());
+                pos = indexAfter('>', pos);
+            } else if (next == '!') {
+                emitText(textStart, lt);
+                if (html.startsWith("<!--", lt)) {
+                    int end = html.indexOf("-->", lt + 4);
+                    pos = end < 0 ? length : end + 3;
+                } else {
+                    pos = indexAfter('>', lt + 2);
+                }
+            } else if (next == '?') {
+                emitText(textStart, lt);
+                pos = indexAfter('>', lt + 2);
+            } else {
+                // a literal '<', stays part of the text
+                pos = lt + 1;
+                continue;
+            }
+            textStart = pos;
+        }
+        emitText(textStart, length);
+    }
+
+    private static boolean isTagNameStart(char c) {
+        return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private int indexAfter(char c, int from) {
+        int idx = html.indexOf(c, from);
+        return idx < 0 ? length : idx + 1;
+    }
+
+    private String tagName() {
+        int start = pos;
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (isWhitespace(c) || c == '/' || c == '>') {
+                break;
+            }
+            pos++;
+        }
+        return html.substring(start, pos).toLowerCase(ROOT);
+    }
+
+    /** Parse a start tag, <tt>pos</tt> is at the first character of the name */
+    private String startTag() {
+        String name = tagName();
+        Attributes attributes = new Attributes();
+        boolean selfClosing = false;
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (c == '>') {
+                pos++;
+                break;
+            } else if (c == '/') {
+                pos++;
+                selfClosing = pos < length && html.charAt(pos) == '>';
+            } else if (isWhitespace(c)) {
+                pos++;
+            } else {
+                selfClosing = false;
+                attribute(attributes);
+            }
+        }
+        handler.startTag(name, attributes, selfClosing);
+        return name;
+    }
+
+    private void attribute(Attributes attributes) {
+        int start = pos;
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (isWhitespace(c) || c == '=' || c == '>' || (c == '/' && pos > start)) {
+                break;
+            }
+            pos++;
+        }
+        String key = html.substring(start, pos).toLowerCase(ROOT);
+        while (pos < length && isWhitespace(html.charAt(pos))) {
+            pos++;
+        }
+        String value = "";
+        if (pos < length && html.charAt(pos) == '=') {
+            pos++;
+            while (pos < length && isWhitespace(html.charAt(pos))) {
+                pos++;
+            }
+            value = attributeValue();
+        }
+        // like browsers, the first of duplicate attributes wins
+        if (!attributes.hasKey(key)) {
+            attributes.put(key, value);
+        }
+    }
+
+    private String attributeValue() {
+        if (pos >= length) {
+            return "";
+        }
+        char quote = html.charAt(pos);
+        int start;
+        int end;
+        if (quote == '"' || quote == '\'') {
+            start = pos + 1;
+            end = html.indexOf(quote, start);
+            if (end < 0) {
+                end = length;
+            }
+            pos = Math.min(end + 1, length);
+        } else {
+            start = pos;
+            while (pos < length && !isWhitespace(html.charAt(pos)) && html.charAt(pos) != '>') {
+                pos++;
+            }
+            end = pos;
+        }
+        return unescape(html.substring(start, end), true);
+    }
+
+    /**
+     * Skip the content of a raw text element up to its end tag.
+     *
+     * @return the position after the end tag
+     */
+    private int skipTo(String name, boolean reportText) {
+        int idx = pos;
+        while ((idx = html.indexOf("</", idx)) >= 0) {
+            int afterName = idx + 2 + name.length();
+            if (html.regionMatches(true, idx + 2, name, 0, name.length())
+                    && (afterName >= length || isWhitespace(html.charAt(afterName)) || html.charAt(afterName) == '>'
+                            || html.charAt(afterName) == '/')) {
+                break;
+            }
+            idx += 2;
+        }
+        int end = idx < 0 ? length : idx;
+        if (reportText) {
+            emitText(pos, end);
+        }
+        if (idx < 0) {
+            return length;
+        }
+        handler.endTag(name);
+        return indexAfter('>', idx);
+    }
+
+    private void emitText(int start, int end) {
+        if (start < end) {
+            handler.text(unescape(html.substring(start, end), false));
+        }
+    }
+
+    private static String unescape(String s, boolean inAttribute) {
+        return s.indexOf('&') < 0 ? s : Parser.unescapeEntities(s, inAttribute);
+    }
+
+}
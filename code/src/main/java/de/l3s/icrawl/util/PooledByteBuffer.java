@@ -0,0 +1,89 @@
+package de.l3s.icrawl.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted view of a buffer from a {@link BufferPool}.
+ *
+ * The buffer starts with one reference and goes back to the pool when the last
+ * reference is {@link #release() released}. Consumers that keep the data
+ * beyond the lifetime of the owner have to {@link #retain()} it.
+ */
+public final class PooledByteBuffer {
+    private final BufferPool pool;
+    private final byte[] buffer;
+    private final int length;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    PooledByteBuffer(BufferPool pool, byte[] buffer, int length) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Read-only view of the content, positioned at the first byte.
+     */
+    public ByteBuffer asByteBuffer() {
+        checkReferenced();
+        return ByteBuffer.wrap(buffer, 0, length).asReadOnlyBuffer();
+    }
+
+    public InputStream openStream() {
+        return new ByteBufferBackedInputStream(asByteBuffer());
+    }
+
+    public String decode(Charset charset) {
+        checkReferenced();
+        return new String(buffer, 0, length, charset);
+    }
+
+    /**
+     * Write the content without copying it.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        checkReferenced();
+        os.write(buffer, 0, length);
+    }
+
+    public PooledByteBuffer retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                throw new IllegalStateException("Buffer has already been released");
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return this;
+    }
+
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.release(buffer);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Buffer has already been released");
+        }
+    }
+
+    private void checkReferenced() {
+        if (references.get() <= 0) {
+            throw new IllegalStateException("Buffer has already been released");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PooledByteBuffer[" + length + " bytes]";
+    }
+
+}
@@ -1,7 +1,5 @@
 package de.l3s.icrawl.util;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 
 import org.jsoup.nodes.Comment;
@@ -12,8 +10,8 @@ import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.nodes.XmlDeclaration;
+import org.jsoup.parser.Tag;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.Sets;
 
 import static com.google.common.base.CharMatcher.WHITESPACE;
@@ -30,34 +28,216 @@ public class TextExtractor {
         "tfoot", "tbody", "colgroup", "col", "tr", "th", "td", "video", "audio", "canvas",
         "details", "menu", "plaintext");
     private static final Set<String> IGNORED_ELEMENTS = Sets.newHashSet("script", "style", "head");
+    /*
+     * jsoup shares one Tag instance between all elements of a known tag name,
+     * so these are compared by identity. Unknown tags get a new instance per
+     * element and are looked up by name.
+     */
+    private static final Set<Tag> BLOCK_TAGS = Sets.newIdentityHashSet();
+    private static final Set<String> UNKNOWN_BLOCK_ELEMENTS = Sets.newHashSet();
+    private static final Set<Tag> IGNORED_TAGS = Sets.newIdentityHashSet();
+    private static final Tag BR = Tag.valueOf("br");
+    /** builders that grew larger than this are not kept for reuse */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1024);
+        }
+    };
+
+    static {
+        for (String name : BLOCK_ELEMENTS) {
+            if (isKnownTag(name)) {
+                BLOCK_TAGS.add(Tag.valueOf(name));
+            } else {
+                UNKNOWN_BLOCK_ELEMENTS.add(name);
+            }
+        }
+        for (String name : IGNORED_ELEMENTS) {
+            IGNORED_TAGS.add(Tag.valueOf(name));
+        }
+    }
 
     private TextExtractor() {}
 
-    public static String extractText(Element node) {
-        List<String> paragraphs = new ArrayList<>();
-        StringBuilder sb = new StringBuilder(1024);
-        extract(node, paragraphs, sb);
-        trimRight(sb);
-        if (sb.length() != 0) {
-            paragraphs.add(sb.toString());
+    private static boolean isKnownTag(String name) {
+        return Tag.valueOf(name) == Tag.valueOf(name);
+    }
+
+    /**
+     * Text of one extraction.
+     *
+     * Paragraphs are written to a single builder, separated by
+     * {@link #FRAGMENT_SEPARATOR}; the current paragraph starts at
+     * <tt>paragraphStart</tt>.
+     */
+    private static final class TextBuffer {
+        private final StringBuilder sb;
+        private int paragraphStart = 0;
+
+        TextBuffer(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        void element(Tag tag) {
+            if (isBlockTag(tag)) {
+                endParagraph();
+            } else if (tag == BR) {
+                sb.append(LINE_BREAK);
+            }
+        }
+
+        void element(String tagName) {
+            if (isBlockElement(tagName)) {
+                endParagraph();
+            } else if ("br".equalsIgnoreCase(tagName)) {
+                sb.append(LINE_BREAK);
+            }
+        }
+
+        private void endParagraph() {
+            trimParagraph();
+            if (sb.length() != paragraphStart) {
+                sb.append(FRAGMENT_SEPARATOR);
+                paragraphStart = sb.length();
+            }
+        }
+
+        private void trimParagraph() {
+            int idx;
+            for (idx = sb.length() - 1; idx >= paragraphStart && WHITESPACE.matches(sb.charAt(idx)); idx--) {}
+            sb.setLength(idx + 1);
+        }
+
+        /**
+         * Append the text of a text node.
+         *
+         * Same as normalizing the whitespace like {@link TextNode#text()} and
+         * adding the trimmed text, with spaces for leading and trailing
+         * whitespace, but done in place.
+         */
+        void text(String text) {
+            int start = sb.length();
+            appendNormalized(text);
+            int end = sb.length();
+            if (start == end) {
+                return;
+            }
+            if (start == paragraphStart && allWhitespace(start, end)) {
+                sb.setLength(start);
+                return;
+            }
+            boolean leadingWhitespace = WHITESPACE.matches(sb.charAt(start));
+            boolean trailingWhitespace = WHITESPACE.matches(sb.charAt(end - 1));
+            // String.trim() semantics
+            int trimmedEnd = end;
+            while (trimmedEnd > start && sb.charAt(trimmedEnd - 1) <= ' ') {
+                trimmedEnd--;
+            }
+            int trimmedStart = start;
+            while (trimmedStart < trimmedEnd && sb.charAt(trimmedStart) <= ' ') {
+                trimmedStart++;
+            }
+            sb.setLength(trimmedEnd);
+            sb.delete(start, trimmedStart);
+            if (trailingWhitespace) {
+                sb.append(' ');
+            }
+            if (leadingWhitespace && start > paragraphStart && !WHITESPACE.matches(sb.charAt(start - 1))) {
+                sb.insert(start, ' ');
+            }
+        }
+
+        /** Collapse runs of HTML whitespace to a single space */
+        private void appendNormalized(String text) {
+            boolean lastWasWhite = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+                    if (!lastWasWhite) {
+                        sb.append(' ');
+                        lastWasWhite = true;
+                    }
+                } else {
+                    sb.append(c);
+                    lastWasWhite = false;
+                }
+            }
+        }
+
+        private boolean allWhitespace(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (!WHITESPACE.matches(sb.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String finish() {
+            trimParagraph();
+            if (sb.length() == paragraphStart && paragraphStart > 0) {
+                // drop the separator after the last paragraph
+                sb.setLength(paragraphStart - FRAGMENT_SEPARATOR.length());
+            }
+            return sb.toString();
         }
-        return Joiner.on(FRAGMENT_SEPARATOR).join(paragraphs);
     }
 
-    private static void handleTextNode(String text, StringBuilder sb) {
-        if (text.isEmpty()) {
-            return;
+    /**
+     * Incremental text extraction for callers that traverse the DOM
+     * themselves, gives the same result as {@link #extractText(Document)}.
+     *
+     * Elements and text nodes have to be passed in document order, skipping
+     * the nodes inside {@link #isIgnoredElement(Element) ignored elements}.
+     */
+    public static class TextCollector {
+        private final TextBuffer buffer = new TextBuffer(new StringBuilder(1024));
+
+        /** Called before the children of an element */
+        public void element(Element elem) {
+            buffer.element(elem.tag());
         }
-        if (WHITESPACE.matchesAllOf(text) && sb.length() == 0) {
-            return;
+
+        /** Same as {@link #element(Element)} for callers without a DOM */
+        public void element(String tagName) {
+            buffer.element(tagName);
         }
-        if (WHITESPACE.matches(text.charAt(0))) {
-            ensureEndsWithSpace(sb);
+
+        public void text(TextNode node) {
+            buffer.text(node.getWholeText());
         }
-        sb.append(text.trim());
-        if (WHITESPACE.matches(lastChar(text))) {
-            sb.append(' ');
+
+        /** Same as {@link #text(TextNode)} for callers without a DOM */
+        public void text(String text) {
+            buffer.text(text);
+        }
+
+        /** Get the extracted text, can only be called once */
+        public String getText() {
+            return buffer.finish();
+        }
+    }
+
+    public static String extractText(Element node) {
+        StringBuilder sb = buffer();
+        TextBuffer buffer = new TextBuffer(sb);
+        extract(node, buffer);
+        return release(sb, buffer.finish());
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFERS.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static String release(StringBuilder sb, String text) {
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFERS.remove();
         }
+        return text;
     }
 
     static void ensureEndsWithSpace(StringBuilder sb) {
@@ -97,48 +277,60 @@ public class TextExtractor {
     }
 
     static boolean isBlockElement(Element elem) {
-        return BLOCK_ELEMENTS.contains(elem.tagName().toLowerCase(ROOT));
+        return isBlockElement(elem.tagName());
+    }
+
+    public static boolean isBlockElement(String tagName) {
+        return BLOCK_ELEMENTS.contains(tagName.toLowerCase(ROOT));
+    }
+
+    static boolean isBlockTag(Tag tag) {
+        return BLOCK_TAGS.contains(tag)
+                || (!UNKNOWN_BLOCK_ELEMENTS.isEmpty() && UNKNOWN_BLOCK_ELEMENTS.contains(tag.getName()));
+    }
+
+    public static boolean isIgnoredElement(Element elem) {
+        return isIgnoredElement(elem.tagName());
+    }
+
+    public static boolean isIgnoredElement(String tagName) {
+        return IGNORED_ELEMENTS.contains(tagName.toLowerCase(ROOT));
     }
 
-    static boolean isIgnoredElement(Element elem) {
-        return IGNORED_ELEMENTS.contains(elem.tagName().toLowerCase(ROOT));
+    /** Same as {@link #isIgnoredElement(Element)} for the tag of a parsed element */
+    public static boolean isIgnoredTag(Tag tag) {
+        return IGNORED_TAGS.contains(tag);
     }
 
     public static String extractText(Document doc) {
-        List<String> paragraphs = new ArrayList<>();
-        StringBuilder sb = new StringBuilder(1024);
-        for (Element node : doc.children()) {
-            extract(node, paragraphs, sb);
-        }
-        trimRight(sb);
-        if (sb.length() != 0) {
-            paragraphs.add(sb.toString());
+        StringBuilder sb = buffer();
+        TextBuffer buffer = new TextBuffer(sb);
+        for (int i = 0; i < doc.childNodeSize(); i++) {
+            Node child = doc.childNode(i);
+            if (child instanceof Element) {
+                extract((Element) child, buffer);
+            }
         }
-        return Joiner.on(FRAGMENT_SEPARATOR).join(paragraphs);
+        return release(sb, buffer.finish());
     }
 
-    private static void extract(Element elem, List<String> paragraphCollector, StringBuilder sb) {
-        if (isIgnoredElement(elem)) {
+    private static void extract(Element elem, TextBuffer buffer) {
+        Tag tag = elem.tag();
+        if (isIgnoredTag(tag)) {
             return;
-        } else if (isBlockElement(elem)) {
-            trimRight(sb);
-            if (sb.length() != 0) {
-                paragraphCollector.add(sb.toString());
-                sb.setLength(0);
-            }
-        } else if ("br".equalsIgnoreCase(elem.tagName())) {
-            sb.append(LINE_BREAK);
         }
-        for (org.jsoup.nodes.Node child : elem.childNodes()) {
-            extract(child, paragraphCollector, sb);
+        buffer.element(tag);
+        // childNodes() would create a new list view for every element
+        for (int i = 0; i < elem.childNodeSize(); i++) {
+            extract(elem.childNode(i), buffer);
         }
     }
 
-    private static void extract(Node node, List<String> paragraphCollector, StringBuilder sb) {
+    private static void extract(Node node, TextBuffer buffer) {
         if (node instanceof Element) {
-            extract((Element) node, paragraphCollector, sb);
+            extract((Element) node, buffer);
         } else if (node instanceof TextNode) {
-            handleTextNode(((TextNode) node).text(), sb);
+            buffer.text(((TextNode) node).getWholeText());
         } else if (node instanceof Comment || node instanceof DataNode || node instanceof DocumentType
                 || node instanceof XmlDeclaration) {
             // ignore
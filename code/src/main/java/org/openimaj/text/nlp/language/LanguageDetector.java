@@ -30,12 +30,11 @@
 package org.openimaj.text.nlp.language;
 
 
-import gnu.trove.map.hash.TIntDoubleHashMap;
-import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.procedure.TIntIntProcedure;
-
 import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -43,8 +42,6 @@ import java.util.zip.GZIPInputStream;
 
 import javax.annotation.Resource;
 
-import no.uib.cipr.matrix.DenseMatrix;
-
 import org.openimaj.io.IOUtils;
 
 /**
@@ -60,15 +57,26 @@ public class LanguageDetector {
 	 */
 	public static final String LANGUAGE_MODEL_BINARY = "/org/openimaj/text/language/language.model.binary.gz";
 
+	private final MappedLanguageModel model;
+
 	private LanguageModel languageModel;
 
 	/**
-	 * Load a language model from {@value #LANGUAGE_MODEL_BINARY}
+	 * Use the language model from {@value #LANGUAGE_MODEL_BINARY}, see
+	 * {@link MappedLanguageModel#getDefault()}
 	 * @throws IOException
 	 */
 
 	public LanguageDetector() throws IOException {
-            loadFromBinary();
+		this(MappedLanguageModel.getDefault());
+	}
+
+	/**
+	 * Use a mapped language model
+	 * @param model
+	 */
+	public LanguageDetector(MappedLanguageModel model) {
+		this.model = model;
 	}
 
 	private void loadFromBinary() throws IOException {
@@ -133,91 +141,232 @@ public class LanguageDetector {
 		public double confidence;
 	}
 
+	/**
+	 * Buffers for the classification of one text, each thread reuses its own.
+	 * The counts are kept sparse: only the entries listed in
+	 * <code>states</code> and <code>features</code> are non-zero.
+	 */
+	private static final class Workspace {
+		final int[] stateCounts;
+		final int[] states;
+		int nStates = 0;
+		final int[] featureCounts;
+		final int[] features;
+		int nFeatures = 0;
+		/** difference of the scores of the best and the second best language */
+		double margin;
+
+		Workspace(MappedLanguageModel model) {
+			this.stateCounts = new int[model.numStates];
+			this.states = new int[stateCounts.length];
+			this.featureCounts = new int[model.naiveBayesNFeats];
+			this.features = new int[featureCounts.length];
+		}
+
+		void clear() {
+			for (int i = 0; i < nStates; i++) {
+				stateCounts[states[i]] = 0;
+			}
+			nStates = 0;
+			for (int i = 0; i < nFeatures; i++) {
+				featureCounts[features[i]] = 0;
+			}
+			nFeatures = 0;
+		}
+	}
+
+	private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace(model);
+		}
+	};
+
 	/**
 	 * Classify the language using a naive-bayes model
 	 *
+	 * This method is thread-safe.
+	 *
 	 * @param text
 	 * @return the detected language
 	 */
 	public WeightedLocale classify(String text){
-		DenseMatrix fv = tokenize(text);
-		WeightedLocale locale = naiveBayesClassify(fv);
-		return locale;
+		Workspace workspace = workspaces.get();
+		workspace.clear();
+		tokenize(text, workspace);
+		return naiveBayesClassify(workspace);
+	}
+
+	/**
+	 * Number of windows the sample of {@link #classifySample(String, int, double)}
+	 * is taken from
+	 */
+	static final int SAMPLE_WINDOWS = 8;
+
+	/**
+	 * Classify the language of a long text from a sample.
+	 *
+	 * The sample consists of about <code>sampleLength</code> characters taken
+	 * from {@value #SAMPLE_WINDOWS} evenly spread windows of the text. When the
+	 * log probabilities of the best and the second best language differ by
+	 * less than <code>minMargin</code>, the result is ambiguous and the full
+	 * text is classified instead.
+	 *
+	 * This method is thread-safe.
+	 *
+	 * @param text
+	 * @param sampleLength the number of characters to classify first
+	 * @param minMargin the score margin for a decisive result
+	 * @return the detected language
+	 */
+	public WeightedLocale classifySample(String text, int sampleLength, double minMargin){
+		if (text.length() <= sampleLength) {
+			return classify(text);
+		}
+		Workspace workspace = workspaces.get();
+		workspace.clear();
+		tokenize(sample(text, sampleLength), workspace);
+		WeightedLocale locale = naiveBayesClassify(workspace);
+		if (workspace.margin >= minMargin) {
+			return locale;
+		}
+		return classify(text);
+	}
+
+	static String sample(String text, int sampleLength) {
+		int windowLength = sampleLength / SAMPLE_WINDOWS;
+		StringBuilder sample = new StringBuilder(sampleLength + SAMPLE_WINDOWS);
+		for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+			int start = (int) ((long) text.length() * i / SAMPLE_WINDOWS);
+			int end = Math.min(start + windowLength, text.length());
+			if (start > 0) {
+				// start at a word boundary, a partial word would add unusual n-grams
+				int wordStart = start;
+				while (wordStart < end && !Character.isWhitespace(text.charAt(wordStart - 1))) {
+					wordStart++;
+				}
+				start = wordStart < end ? wordStart : start;
+			}
+			if (start < end && Character.isLowSurrogate(text.charAt(start))) {
+				start++;
+			}
+			if (end < text.length() && end > start && Character.isHighSurrogate(text.charAt(end - 1))) {
+				end--;
+			}
+			if (sample.length() > 0) {
+				sample.append(' ');
+			}
+			sample.append(text, start, end);
+		}
+		return sample.toString();
 	}
-	private WeightedLocale naiveBayesClassify(DenseMatrix fv) {
-	        DenseMatrix nbWorkspace = new DenseMatrix(1, this.languageModel.naiveBayesPTC.numColumns());
-		double logFVSum = sumLogFactorial(fv);
-		fv.mult(this.languageModel.naiveBayesPTC, nbWorkspace);// times(this.languageModel.naiveBayesPTC);
-		DenseMatrix pdc = nbWorkspace;
-//		multiplied.print(5, 5);
-//		this.languageModel.naiveBayesPTC.print(5, 5);
-		pdc.add(this.languageModel.naiveBayesPC);
-		double[] pdData = pdc.getData();
+
+	private WeightedLocale naiveBayesClassify(Workspace workspace) {
+		// sorted, the features are summed in the same order as by the dense multiplication
+		Arrays.sort(workspace.features, 0, workspace.nFeatures);
+		double logFVSum = sumLogFactorial(workspace);
+		int nFeats = this.model.naiveBayesNFeats;
+		// column major N x M matrix, the scores only depend on the rows of the active features
+		DoubleBuffer ptcData = this.model.naiveBayesPTC;
+		DoubleBuffer pcData = this.model.naiveBayesPC;
 		int bestIndex = -1;
-		double best = 0;
+		double best = Double.NEGATIVE_INFINITY;
+		double second = Double.NEGATIVE_INFINITY;
 		double sum = 0;
-		for (int i = 0; i < pdc.numColumns(); i++) {
-			double correctedScore = pdData[i] - logFVSum ;
-//			System.out.format("%s scores %f \n",this.languageModel.naiveBayesClasses[i],correctedScore);
+		for (int i = 0; i < pcData.limit(); i++) {
+			int offset = i * nFeats;
+			double score = 0;
+			for (int j = 0; j < workspace.nFeatures; j++) {
+				int feature = workspace.features[j];
+				score += ptcData.get(offset + feature) * workspace.featureCounts[feature];
+			}
+			double correctedScore = (score + pcData.get(i)) - logFVSum;
 			sum +=correctedScore;
 			if(bestIndex == -1 || correctedScore > best)
 			{
+				second = best;
 				bestIndex = i;
 				best = correctedScore;
 			}
+			else if (correctedScore > second)
+			{
+				second = correctedScore;
+			}
+		}
+		workspace.margin = best - second;
+
+		return new WeightedLocale(this.model.naiveBayesClasses[bestIndex],best/sum);
+	}
+
+	// log(n!) for the common feature counts
+	private static final double[] LOG_FACTORIALS = new double[4096];
+	static {
+		for (int i = 1; i < LOG_FACTORIALS.length; i++) {
+			LOG_FACTORIALS[i] = LOG_FACTORIALS[i - 1] + Math.log(i);
 		}
+	}
 
-		return new WeightedLocale(this.languageModel.naiveBayesClasses[bestIndex],best/sum);
+	static double logFactorial(int n) {
+		if (n < LOG_FACTORIALS.length) {
+			return LOG_FACTORIALS[n];
+		}
+		double logFactorial = LOG_FACTORIALS[LOG_FACTORIALS.length - 1];
+		for (int j = LOG_FACTORIALS.length; j <= n; j++) {
+			logFactorial += Math.log(j);
+		}
+		return logFactorial;
 	}
 
-	// an element wise log-factorial
-	TIntDoubleHashMap logFacCache = new TIntDoubleHashMap();
-	private double sumLogFactorial(DenseMatrix fv) {
+	// an element wise log-factorial, zero counts contribute log(0!) = 0
+	private static double sumLogFactorial(Workspace workspace) {
 		double sum = 0;
-		double[] data = fv.getData();
-		for (int i = 0; i < fv.numColumns(); i ++) {
-			int fvi = (int) data[i];
-			if(logFacCache.contains(fvi))
-			{
-				sum += logFacCache.get(fvi);
-			}
-			else{
-				for(int j = 1; j < fvi+1; j++){
-					sum += Math.log(j);
-				}
-			}
+		for (int i = 0; i < workspace.nFeatures; i++) {
+			sum += logFactorial(workspace.featureCounts[workspace.features[i]]);
 		}
 		return sum;
 	}
 
-	private DenseMatrix tokenize(String text) {
-        byte[] ords = text.getBytes(StandardCharsets.UTF_8);
-        int state = 0;
-		TIntIntHashMap statecount = new TIntIntHashMap();
+	private void tokenize(String text, Workspace workspace) {
+		byte[] ords = text.getBytes(StandardCharsets.UTF_8);
+		IntBuffer nextMove = this.model.tk_nextmove;
+		int[] stateCounts = workspace.stateCounts;
+		int state = 0;
 		for (byte letter : ords) {
-			state = this.languageModel.tk_nextmove[(state << 8) + (letter & 0xff)];
-			statecount.adjustOrPutValue(state, 1, 1);
-		}
-		final double[][] fv = new double[1][this.languageModel.naiveBayesNFeats];
-		statecount.forEachEntry(new TIntIntProcedure() {
-			@Override
-			public boolean execute(int state, final int statecount) {
-				int[] indexes = LanguageDetector.this.languageModel.tk_output.get(state);
-				if(indexes == null) return true;
-				for (int i : indexes) {
-
-					fv[0][i] += statecount;
+			state = nextMove.get((state << 8) + (letter & 0xff));
+			if (stateCounts[state]++ == 0) {
+				workspace.states[workspace.nStates++] = state;
+			}
+		}
+		int[] featureCounts = workspace.featureCounts;
+		IntBuffer offsets = this.model.tk_outputOffsets;
+		IntBuffer output = this.model.tk_output;
+		for (int i = 0; i < workspace.nStates; i++) {
+			int outputState = workspace.states[i];
+			int count = stateCounts[outputState];
+			for (int k = offsets.get(outputState), end = offsets.get(outputState + 1); k < end; k++) {
+				int feature = output.get(k);
+				if (featureCounts[feature] == 0) {
+					workspace.features[workspace.nFeatures++] = feature;
 				}
-				return true;
+				featureCounts[feature] += count;
 			}
-		});
-		return new DenseMatrix(fv);
+		}
 	}
 
 	/**
+	 * The classification uses the mapped model, the heap version of
+	 * {@value #LANGUAGE_MODEL_BINARY} is only read on the first call.
+	 *
 	 * @return the underlying {@link LanguageModel}
 	 */
-	public LanguageModel getLanguageModel() {
+	public synchronized LanguageModel getLanguageModel() {
+		if (this.languageModel == null) {
+			try {
+				loadFromBinary();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 		return this.languageModel;
 	}
 
@@ -229,7 +378,7 @@ public class LanguageDetector {
 	public static void main(String[] args) throws IOException {
 		LanguageDetector lm = new LanguageDetector();
 		System.out.println("Available languages: ");
-		for (String string : lm.languageModel.naiveBayesClasses) {
+		for (String string : lm.model.naiveBayesClasses) {
 			System.out.println(string + ": " + new Locale(string).getDisplayLanguage());
 		}
 	}
@@ -0,0 +1,264 @@
+package org.openimaj.text.nlp.language;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.openimaj.io.IOUtils;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+
+/**
+ * The data of a {@link LanguageModel} in a memory mapped file.
+ *
+ * The file is uncompressed and little endian, all arrays are aligned to their
+ * element size, so the model is read through buffer views without copying it
+ * to the heap. The mapping can be shared by all threads, and processes mapping
+ * the same file share the pages of the operating system cache. The layout is:
+ *
+ * <pre>
+ * header:  "LANGMAP1", nClasses, nFeats, nextMoveLength, outputLength, classNamesLength, 0 (int)
+ * double:  naiveBayesPC[nClasses], naiveBayesPTC[nFeats * nClasses] (column major)
+ * int:     tk_nextmove[nextMoveLength]
+ * int:     offsets of the tk_output entries of each state[nextMoveLength / 256 + 1]
+ * int:     tk_output entries[outputLength]
+ * byte:    class names, UTF-8, separated by '\n'[classNamesLength]
+ * </pre>
+ */
+public class MappedLanguageModel {
+	private static final byte[] MAGIC = "LANGMAP1".getBytes(StandardCharsets.US_ASCII);
+	/** with one unused int, so the doubles start at a multiple of 8 */
+	private static final int HEADER_LENGTH = MAGIC.length + 6 * Integer.BYTES;
+
+	/** system property with the directory of the converted default model */
+	public static final String CACHE_DIR_PROPERTY = "languageModel.cacheDir";
+
+	private static MappedLanguageModel defaultModel;
+
+	final String[] naiveBayesClasses;
+	final int naiveBayesNFeats;
+	/** 1 x M */
+	final DoubleBuffer naiveBayesPC;
+	/** N x M, column major */
+	final DoubleBuffer naiveBayesPTC;
+	final IntBuffer tk_nextmove;
+	final int numStates;
+	/** the features of state <tt>s</tt> are <tt>tk_output[tk_outputOffsets[s], tk_outputOffsets[s + 1])</tt> */
+	final IntBuffer tk_outputOffsets;
+	final IntBuffer tk_output;
+
+	private MappedLanguageModel(ByteBuffer buffer) throws IOException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.limit() < HEADER_LENGTH) {
+			throw new IOException("Not a mapped language model, only " + buffer.limit() + " bytes");
+		}
+		byte[] magic = new byte[MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a mapped language model");
+		}
+		int nClasses = buffer.getInt();
+		this.naiveBayesNFeats = buffer.getInt();
+		int nextMoveLength = buffer.getInt();
+		int outputLength = buffer.getInt();
+		int classNamesLength = buffer.getInt();
+		if (nClasses <= 0 || naiveBayesNFeats < 0 || nextMoveLength < 0 || outputLength < 0
+				|| classNamesLength < 0) {
+			throw new IOException("Corrupt language model header: " + nClasses + " classes, " + naiveBayesNFeats
+					+ " features, lengths " + nextMoveLength + ", " + outputLength + ", " + classNamesLength);
+		}
+		this.numStates = nextMoveLength >> 8;
+		long expectedLength = HEADER_LENGTH + (nClasses + (long) naiveBayesNFeats * nClasses) * Double.BYTES
+				+ ((long) nextMoveLength + numStates + 1 + outputLength) * Integer.BYTES + classNamesLength;
+		if (expectedLength != buffer.limit()) {
+			throw new IOException("Truncated or corrupt language model: expected " + expectedLength
+					+ " bytes, got " + buffer.limit());
+		}
+
+		int position = HEADER_LENGTH;
+		this.naiveBayesPC = slice(buffer, position, nClasses * Double.BYTES).asDoubleBuffer();
+		position += nClasses * Double.BYTES;
+		this.naiveBayesPTC = slice(buffer, position, naiveBayesNFeats * nClasses * Double.BYTES).asDoubleBuffer();
+		position += naiveBayesNFeats * nClasses * Double.BYTES;
+		this.tk_nextmove = slice(buffer, position, nextMoveLength * Integer.BYTES).asIntBuffer();
+		position += nextMoveLength * Integer.BYTES;
+		this.tk_outputOffsets = slice(buffer, position, (numStates + 1) * Integer.BYTES).asIntBuffer();
+		position += (numStates + 1) * Integer.BYTES;
+		checkOffsets(tk_outputOffsets, outputLength);
+		this.tk_output = slice(buffer, position, outputLength * Integer.BYTES).asIntBuffer();
+		position += outputLength * Integer.BYTES;
+		byte[] classNames = new byte[classNamesLength];
+		((ByteBuffer) buffer.position(position)).get(classNames);
+		this.naiveBayesClasses = new String(classNames, StandardCharsets.UTF_8).split("\n");
+		if (naiveBayesClasses.length != nClasses) {
+			throw new IOException("Expected " + nClasses + " classes, got " + naiveBayesClasses.length);
+		}
+	}
+
+	/** the offsets must be ascending and within the output entries */
+	private static void checkOffsets(IntBuffer offsets, int outputLength) throws IOException {
+		int previous = 0;
+		for (int i = 0; i < offsets.limit(); i++) {
+			int offset = offsets.get(i);
+			if (offset < previous || offset > outputLength) {
+				throw new IOException("Corrupt language model: output offset " + offset + " of state " + i);
+			}
+			previous = offset;
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(position).limit(position + length);
+		return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Map a model written by {@link #write(LanguageModel, File)}
+	 *
+	 * @param file
+	 * @return the model
+	 * @throws IOException
+	 */
+	public static MappedLanguageModel map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedLanguageModel(buffer);
+		}
+	}
+
+	/**
+	 * Write a model in the mapped format
+	 *
+	 * @param model
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(LanguageModel model, File file) throws IOException {
+		int nClasses = model.naiveBayesClasses.length;
+		int nFeats = model.naiveBayesNFeats;
+		int numStates = model.tk_nextmove.length >> 8;
+		int[] offsets = new int[numStates + 1];
+		model.tk_output.forEachEntry((state, features) -> {
+			if (state < 0 || state >= numStates) {
+				throw new IllegalArgumentException("Output for unknown state " + state);
+			}
+			offsets[state + 1] = features.length;
+			return true;
+		});
+		for (int i = 0; i < numStates; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] output = new int[offsets[numStates]];
+		model.tk_output.forEachEntry((state, features) -> {
+			System.arraycopy(features, 0, output, offsets[state], features.length);
+			return true;
+		});
+		byte[] classNames = String.join("\n", model.naiveBayesClasses).getBytes(StandardCharsets.UTF_8);
+
+		long length = HEADER_LENGTH + (long) (nClasses + nFeats * nClasses) * Double.BYTES
+				+ (long) (model.tk_nextmove.length + offsets.length + output.length) * Integer.BYTES
+				+ classNames.length;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.put(MAGIC);
+			buffer.putInt(nClasses).putInt(nFeats).putInt(model.tk_nextmove.length).putInt(output.length)
+				.putInt(classNames.length).putInt(0);
+			for (double value : model.naiveBayesPC.getData()) {
+				buffer.putDouble(value);
+			}
+			for (double value : model.naiveBayesPTC.getData()) {
+				buffer.putDouble(value);
+			}
+			for (int[] values : new int[][] { model.tk_nextmove, offsets, output }) {
+				for (int value : values) {
+					buffer.putInt(value);
+				}
+			}
+			buffer.put(classNames);
+			buffer.force();
+		}
+	}
+
+	/**
+	 * The model of {@link LanguageDetector#LANGUAGE_MODEL_BINARY}, converted
+	 * once to a file that is shared by all instances and processes. The file
+	 * is named after the format and the SHA-256 hash of the model and stored
+	 * in the directory given by the system property {@value #CACHE_DIR_PROPERTY}
+	 * (default <tt>~/.cache/icrawl</tt>), which is created readable by the
+	 * owner only.
+	 *
+	 * @return the default model
+	 * @throws IOException
+	 */
+	public static synchronized MappedLanguageModel getDefault() throws IOException {
+		if (defaultModel == null) {
+			URL resource = LanguageDetector.class.getResource(LanguageDetector.LANGUAGE_MODEL_BINARY);
+			String hash = Resources.asByteSource(resource).hash(Hashing.sha256()).toString();
+			File file = new File(cacheDirectory(),
+				"language.model." + hash + "." + new String(MAGIC, StandardCharsets.US_ASCII));
+			if (!file.exists()) {
+				convert(resource, file);
+			}
+			try {
+				defaultModel = map(file);
+			} catch (IOException e) {
+				// left by an older, broken version, replace it
+				convert(resource, file);
+				defaultModel = map(file);
+			}
+		}
+		return defaultModel;
+	}
+
+	private static File cacheDirectory() throws IOException {
+		String configured = System.getProperty(CACHE_DIR_PROPERTY);
+		Path directory = configured != null ? Paths.get(configured)
+				: Paths.get(System.getProperty("user.home"), ".cache", "icrawl");
+		if (!Files.isDirectory(directory)) {
+			if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+				Files.createDirectories(directory,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} else {
+				Files.createDirectories(directory);
+			}
+		}
+		return directory.toFile();
+	}
+
+	private static void convert(URL resource, File file) throws IOException {
+		LanguageModel model;
+		try (InputStream is = new GZIPInputStream(resource.openStream())) {
+			model = IOUtils.read(is, IOUtils.newInstance(LanguageModel.class));
+		}
+		// other processes may convert at the same time, they only see complete files
+		Path tempFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+		try {
+			write(model, tempFile.toFile());
+			Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package de.l3s.icrawl.contentanalysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import de.l3s.icrawl.util.TextExtractor;
+
+/**
+ * Compares the separate DOM passes of the analysis with a single
+ * {@link PageScan}.
+ *
+ * Usage: <tt>PageScanBenchmark file.html...</tt>
+ */
+public class PageScanBenchmark {
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: PageScanBenchmark file.html...");
+            System.exit(1);
+        }
+        List<Document> docs = new ArrayList<>();
+        for (String arg : args) {
+            docs.add(Jsoup.parse(new File(arg), null, "http://www.example.com/"));
+        }
+        run(docs, WARMUP_ROUNDS);
+        long[] times = run(docs, ROUNDS);
+        System.out.printf("separate passes: %.3f ms/doc%n", times[0] / 1e6 / ROUNDS / docs.size());
+        System.out.printf("single pass:     %.3f ms/doc%n", times[1] / 1e6 / ROUNDS / docs.size());
+    }
+
+    private static long[] run(List<Document> docs, int rounds) {
+        long separate = 0;
+        long single = 0;
+        int sink = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (Document doc : docs) {
+                long start = System.nanoTime();
+                sink += separatePasses(doc);
+                long middle = System.nanoTime();
+                sink += singlePass(doc);
+                single += System.nanoTime() - middle;
+                separate += middle - start;
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+        return new long[] { separate, single };
+    }
+
+    private static int separatePasses(Document doc) {
+        int size = TextExtractor.extractText(doc).length();
+        size += doc.select("a[href]").size();
+        size += doc.getElementsByTag("time").size();
+        size += doc.getElementsByTag("meta").size();
+        for (Node n : new TreeWalker(WebPageDateExtractor.findDomRoot(doc), WebPageDateExtractor.SKIPPED_ELEMENTS)) {
+            if (n instanceof TextNode && WebPageDateExtractor.DATE_TRIGGERS.matcher(((TextNode) n).text()).find()) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static int singlePass(Document doc) {
+        PageScan page = PageScan.scan(doc);
+        return page.getText().length() + page.getLinks().size() + page.getTimeElements().size()
+                + page.getMetaElements().size() + page.getTriggerTextNodes().size();
+    }
+}
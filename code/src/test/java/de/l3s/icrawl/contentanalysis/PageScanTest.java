@@ -0,0 +1,77 @@
+package de.l3s.icrawl.contentanalysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.Test;
+
+import de.l3s.icrawl.crawler.TestUtils;
+import de.l3s.icrawl.util.TextExtractor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PageScanTest {
+    private static final String URL = "http://sonne.cpfs.mpg.de:4000/index.php?title=Special:RecentChanges";
+
+    @Test
+    public void testSameAsSeparatePasses() throws IOException {
+        assertSameAsSeparatePasses(TestUtils.loadDocument(getClass(), "walker-test.html", URL));
+        assertSameAsSeparatePasses(TestUtils.loadDocument(getClass(), "lhc.html", "http://www.example.com/"));
+    }
+
+    @Test
+    public void testSmallDocument() {
+        Document doc = Jsoup.parse("<html><head><title>Title</title><meta name='date' content='2015-03-01'>"
+                + "<script>var a = '<a href=x>';</script></head><body><p>First <a href='/a'>link</a><br>"
+                + "line</p><pre>Created 2015-01-01</pre><div>Last modified: 2015-02-01"
+                + "<time datetime='2015-02-02'>yesterday</time><a name='anchor'>no link</a></div>"
+                + "<style>p { color: red; }</style></body></html>", "http://www.example.com/");
+        PageScan page = PageScan.scan(doc);
+
+        assertThat(page.getText(), is("First link\nline\n\nCreated 2015-01-01\n\nLast modified: 2015-02-01yesterdayno link"));
+        assertThat(page.getLinks().size(), is(1));
+        assertThat(page.getLinks().get(0).absUrl("href"), is("http://www.example.com/a"));
+        assertThat(page.getTimeElements().size(), is(1));
+        assertThat(page.getMetaElements().size(), is(1));
+        // text inside <pre> is not searched for dates
+        assertThat(page.getTriggerTextNodes().size(), is(1));
+        assertThat(page.getTriggerTextNodes().get(0).text(), is("Last modified: 2015-02-01"));
+        assertSameAsSeparatePasses(doc);
+    }
+
+    @Test
+    public void testEmptyDocument() {
+        PageScan page = PageScan.scan(new Document("http://www.example.com/"));
+        assertThat(page.getText(), is(""));
+        assertThat(page.getLinks().isEmpty(), is(true));
+        assertThat(page.getDateTextNodes().isEmpty(), is(true));
+    }
+
+    private static void assertSameAsSeparatePasses(Document doc) {
+        PageScan page = PageScan.scan(doc);
+        assertThat(page.getText(), is(TextExtractor.extractText(doc)));
+        assertThat(page.getLinks(), is((List<Element>) doc.select("a[href]")));
+        assertThat(page.getTimeElements(), is((List<Element>) doc.getElementsByTag("time")));
+        assertThat(page.getMetaElements(), is((List<Element>) doc.getElementsByTag("meta")));
+
+        List<TextNode> dateTextNodes = new ArrayList<>();
+        List<TextNode> triggerTextNodes = new ArrayList<>();
+        for (Node n : new TreeWalker(WebPageDateExtractor.findDomRoot(doc), WebPageDateExtractor.SKIPPED_ELEMENTS)) {
+            if (n instanceof TextNode) {
+                dateTextNodes.add((TextNode) n);
+                if (WebPageDateExtractor.DATE_TRIGGERS.matcher(((TextNode) n).text()).find()) {
+                    triggerTextNodes.add((TextNode) n);
+                }
+            }
+        }
+        assertThat(page.getDateTextNodes(), is(dateTextNodes));
+        assertThat(page.getTriggerTextNodes(), is(triggerTextNodes));
+    }
+}
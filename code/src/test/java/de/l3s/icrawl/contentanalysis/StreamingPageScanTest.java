@@ -0,0 +1,96 @@
+package de.l3s.icrawl.contentanalysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import com.google.common.io.Resources;
+
+import de.l3s.icrawl.contentanalysis.WebPageDateExtractor.DateSource;
+import de.l3s.icrawl.contentanalysis.WebPageDateExtractor.WebPageDate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StreamingPageScanTest {
+    private static final String URL = "http://www.example.com/dir/page.html";
+
+    @Test
+    public void testSameAsDomScan() throws IOException {
+        assertSameAsDomScan(load("walker-test.html"));
+        assertSameAsDomScan(load("lhc.html"));
+    }
+
+    @Test
+    public void testImpliedStructure() {
+        String html = "<title>Title</title><meta name='date' content='2015-03-01'>"
+                + "<p>First &amp; <a href='../a?x=1&amp;y=2'>link</a><br>line<p>Created 2015-01-01"
+                + "<div>Last modified: 2015-02-01<time datetime='2015-02-02'>yesterday</time></div>"
+                + "<script>document.write('<a href=\"x\">');</script><!-- <a href='y'> -->"
+                + "<ul><li>one<li>two</ul>";
+        StreamingPageScan page = StreamingPageScan.scan(html, URL);
+
+        assertThat(page.getText(), is("First & link\nline\n\nCreated 2015-01-01\n\n"
+                + "Last modified: 2015-02-01yesterday\n\none\n\ntwo"));
+        assertThat(page.getLinks().size(), is(1));
+        assertThat(page.getLinks().get(0), is("http://www.example.com/a?x=1&y=2"));
+        assertThat(page.getTimeElements().size(), is(1));
+        assertThat(page.getMetaElements().size(), is(1));
+        assertThat(page.getTriggerParagraphs().size(), is(2));
+        assertThat(page.getTriggerParagraphs().get(0).getText(), is("Created 2015-01-01"));
+        assertThat(page.getTriggerParagraphs().get(1).getText(), is("Last modified: 2015-02-01yesterday"));
+        assertSameAsDomScan(html);
+    }
+
+    @Test
+    public void testBaseUrl() {
+        StreamingPageScan page = StreamingPageScan.scan(
+            "<head><base href='http://other.example.com/base/'></head><body><a href='page'>x</a>"
+                    + "<a href='?q'>y</a></body>", URL);
+        assertThat(page.getLinks().get(0), is("http://other.example.com/base/page"));
+        assertThat(page.getLinks().get(1), is("http://other.example.com/base/?q"));
+    }
+
+    @Test
+    public void testModifiedDate() throws InterruptedException {
+        String html = "<html><body><div><p>Published: 28.9.2009</p><p>Some text</p></div>"
+                + "<p>Last update: 9. Jun 2010, 15:01 Uhr</p></body></html>";
+        WebPageDate domDate = WebPageDateExtractor.extractModifiedDate(Jsoup.parse(html, URL));
+        WebPageDate streamingDate = WebPageDateExtractor.extractModifiedDate(StreamingPageScan.scan(html, URL));
+        assertThat(streamingDate.getDateSource(), is(DateSource.TRIGGER_WORD));
+        assertThat(streamingDate.getDate(), is(domDate.getDate()));
+    }
+
+    @Test
+    public void testEmptyPage() throws InterruptedException {
+        StreamingPageScan page = StreamingPageScan.scan("", URL);
+        assertThat(page.getText(), is(""));
+        assertThat(page.getLinks().isEmpty(), is(true));
+        assertThat(WebPageDateExtractor.extractModifiedDate(page), is(nullValue()));
+    }
+
+    private String load(String name) throws IOException {
+        return Resources.toString(Resources.getResource(getClass(), name), UTF_8);
+    }
+
+    private static void assertSameAsDomScan(String html) {
+        Document doc = Jsoup.parse(html, URL);
+        PageScan domPage = PageScan.scan(doc);
+        StreamingPageScan page = StreamingPageScan.scan(html, URL);
+        assertThat(page.getText(), is(domPage.getText()));
+        List<String> domLinks = new ArrayList<>();
+        for (Element link : domPage.getLinks()) {
+            domLinks.add(link.absUrl("href"));
+        }
+        assertThat(page.getLinks(), is(domLinks));
+        assertThat(page.getTimeElements().size(), is(domPage.getTimeElements().size()));
+        assertThat(page.getMetaElements().size(), is(domPage.getMetaElements().size()));
+    }
+}
@@ -1,7 +1,16 @@
 package de.l3s.icrawl.crawler;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.junit.Test;
 
 import com.google.common.io.Resources;
@@ -12,11 +21,61 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
 public class RegexUrlNormalizerTest {
+    private static final URL RULES = Resources.getResource("default-regex-normalizers.xml");
+    private static final String[] HOSTS = { "http://www.example.org", "https://example.com:8080", "http://a.b.de" };
+    private static final String[] PATH_PARTS = { "/", "//", "/index.html", "/Default.ASPX", "/index.php3",
+            "/dir", "/a.b", ";jsessionid=ABC123", ";JSESSIONID=x", "/x.", "/über", "/index.jspf", "/default.shtml",
+            "/%20", "/.", "/foo.html" };
+    private static final String[] QUERY_PARTS = { "?", "&", "&&", "&&&", "?&", "sid=1", "PHPSESSID=abc",
+            "sessionid=x", "_sid=2", "bv_sid=3", "a=b", "x=index.html", "#", "#top", "#a?b", "=", ".", "q=a//b",
+            "lsid=9" };
 
     @Test
     public void testNormalize() throws IOException {
-        RegexUrlNormalizer normalizer = new RegexUrlNormalizer(Resources.getResource("default-regex-normalizers.xml"));
+        RegexUrlNormalizer normalizer = new RegexUrlNormalizer(RULES);
         assertThat(normalizer.normalize("http://www.example.org/?&foo=bar#baz"), is("http://www.example.org/?foo=bar"));
     }
 
+    @Test
+    public void testUnchanged() throws IOException {
+        RegexUrlNormalizer normalizer = new RegexUrlNormalizer(RULES);
+        String url = "http://www.example.org/dir/page?a=b";
+        assertThat(normalizer.normalize(url), is(url));
+    }
+
+    /** Compare with applying all rules one after the other on random URLs */
+    @Test
+    public void testSameAsSequentialRules() throws IOException {
+        RegexUrlNormalizer normalizer = new RegexUrlNormalizer(RULES);
+        List<Pattern> patterns = new ArrayList<>();
+        List<String> replacements = new ArrayList<>();
+        try (InputStream is = RULES.openStream()) {
+            Document rulesDoc = Jsoup.parse(is, "UTF-8", "");
+            for (Element e : rulesDoc.select("regex")) {
+                patterns.add(Pattern.compile(e.select("pattern").first().text()));
+                replacements.add(e.select("substitution").first().text());
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String url = randomUrl(random);
+            String expected = url;
+            for (int j = 0; j < patterns.size(); j++) {
+                expected = patterns.get(j).matcher(expected).replaceAll(replacements.get(j));
+            }
+            assertThat(url, normalizer.normalize(url), is(expected));
+        }
+    }
+
+    private static String randomUrl(Random random) {
+        StringBuilder sb = new StringBuilder(HOSTS[random.nextInt(HOSTS.length)]);
+        for (int i = random.nextInt(5); i > 0; i--) {
+            sb.append(PATH_PARTS[random.nextInt(PATH_PARTS.length)]);
+        }
+        for (int i = random.nextInt(6); i > 0; i--) {
+            sb.append(QUERY_PARTS[random.nextInt(QUERY_PARTS.length)]);
+        }
+        return sb.toString();
+    }
+
 }
@@ -6,10 +6,15 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.snapshots.SnaphotLocation;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.lessThan;
@@ -59,4 +64,36 @@ public class TimeSpecificationTest {
         assertThat(relevance, is(lessThanOrEqualTo(1.0)));
     }
 
+    @Test
+    public void testFindBestCompact() throws Exception {
+        TimeSpecification spec = TimeSpecification.interval(LocalDate.of(2006, 6, 9), LocalDate.of(2006, 7, 9),
+            Period.ofDays(30));
+        SnapshotLocations.Builder builder = SnapshotLocations.builder(10);
+        ZonedDateTime base = ZonedDateTime.of(2006, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 20; i++) {
+            ZonedDateTime crawlTime = base.plusDays(17 * i).plusSeconds(i);
+            builder.add("http://example.org/", i % 7 == 3 ? SnapshotLocations.NO_CRAWL_TIME : crawlTime.toEpochSecond(),
+                "file-" + (i % 3) + ".warc.gz", 1000L * i, -1, "text/html");
+        }
+        SnapshotLocations locations = builder.build();
+
+        for (int maxResults : new int[] { 0, 1, 5, 19, 20, 25 }) {
+            List<SnaphotLocation> expected = Lists.newArrayList(spec.findBest((Iterable<SnaphotLocation>) locations,
+                maxResults));
+            List<SnaphotLocation> actual = Lists.newArrayList(spec.findBest(locations, maxResults));
+            assertThat(actual, is(expected));
+        }
+    }
+
+    @Test
+    public void testGetRelevanceSeconds() throws Exception {
+        TimeSpecification spec = TimeSpecification.interval(LocalDate.of(2006, 6, 9), LocalDate.of(2006, 7, 9),
+            Period.ofDays(30));
+        ZonedDateTime base = ZonedDateTime.of(2006, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 400; i += 3) {
+            ZonedDateTime t = base.plusDays(i).plusHours(i % 24);
+            assertThat(spec.getRelevance(t.toEpochSecond()), is(spec.getRelevance(t)));
+        }
+    }
+
 }
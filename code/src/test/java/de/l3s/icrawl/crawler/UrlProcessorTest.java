@@ -0,0 +1,98 @@
+package de.l3s.icrawl.crawler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.archive.url.WaybackURLKeyMaker;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import de.l3s.icrawl.crawler.urls.CachingUrlProcessor;
+import de.l3s.icrawl.crawler.urls.NormalizedUrl;
+import de.l3s.icrawl.crawler.urls.UrlCanonicalizerNormalizer;
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+import de.l3s.icrawl.crawler.urls.UrlNormalizer;
+import de.l3s.icrawl.crawler.urls.UrlProcessor;
+import de.l3s.icrawl.snapshots.CachingUrlKeyMaker;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class UrlProcessorTest {
+    private final UrlProcessor processor = new UrlProcessor(new UrlCanonicalizerNormalizer(), UrlFilter.ONLY_HTTP,
+        new CachingUrlKeyMaker(new WaybackURLKeyMaker(), 100));
+
+    @Test
+    public void testProcess() throws Exception {
+        String url = "http://www.example.org/foo?utm_source=bar#baz";
+        NormalizedUrl normalized = processor.process(url);
+        assertThat(normalized.getUrl(), is("http://www.example.org/foo"));
+        assertThat(normalized.getSurt(), is(new WaybackURLKeyMaker().makeKey("http://www.example.org/foo")));
+    }
+
+    @Test
+    public void testCachedKeyIsStable() {
+        String url = "http://www.example.org/foo";
+        assertThat(processor.process(url).getSurt(), is(processor.process(url).getSurt()));
+    }
+
+    @Test
+    public void testRejected() {
+        assertThat(processor.process("ftp://example.org/"), is(nullValue()));
+        assertThat(processor.process("http://example.org:foo/"), is(nullValue()));
+    }
+
+    @Test
+    public void testProcessAll() {
+        List<NormalizedUrl> processed = processor.processAll(Arrays.asList("http://www.example.org/a",
+            "ftp://example.org/", "http://www.example.org/b", "http://www.example.org/a",
+            "http://www.example.org/b#top"));
+        assertThat(processed.size(), is(3));
+        assertThat(processed.get(0).getUrl(), is("http://www.example.org/a"));
+        assertThat(processed.get(1).getUrl(), is("http://www.example.org/b"));
+        assertThat(processed.get(2).getUrl(), is("http://www.example.org/b"));
+    }
+
+    @Test
+    public void testCachingProcessor() {
+        AtomicInteger normalized = new AtomicInteger();
+        UrlNormalizer countingNormalizer = url -> {
+            normalized.incrementAndGet();
+            return new UrlCanonicalizerNormalizer().normalize(url);
+        };
+        MetricRegistry metrics = new MetricRegistry();
+        UrlProcessor cachingProcessor = new CachingUrlProcessor(countingNormalizer, UrlFilter.ONLY_HTTP,
+            new WaybackURLKeyMaker(), 100, metrics);
+
+        List<String> urls = Arrays.asList("http://www.example.org/a?utm_source=x", "ftp://example.org/",
+            "http://www.example.org/a?utm_source=x");
+        assertThat(cachingProcessor.processAll(urls).size(), is(1));
+        assertThat(cachingProcessor.processAll(urls).size(), is(1));
+        assertThat(cachingProcessor.process("http://www.example.org/a?utm_source=x").getUrl(),
+            is("http://www.example.org/a"));
+        assertThat(cachingProcessor.process("ftp://example.org/"), is(nullValue()));
+        // rejected URLs are cached as well
+        assertThat(normalized.get(), is(2));
+        Gauge<?> hitRate = metrics.getGauges().get(name(CachingUrlProcessor.class, "cacheHitRate"));
+        assertThat((Double) hitRate.getValue(), is(4.0 / 6));
+        assertThat(metrics.timer(name(CachingUrlProcessor.class, "normalizationTime")).getCount(), is(2L));
+    }
+
+    @Test
+    public void testCachingProcessorsShareRegistry() {
+        MetricRegistry metrics = new MetricRegistry();
+        new CachingUrlProcessor(new UrlCanonicalizerNormalizer(), UrlFilter.ONLY_HTTP, new WaybackURLKeyMaker(),
+            100, metrics).process("http://www.example.org/a");
+        UrlProcessor second = new CachingUrlProcessor(new UrlCanonicalizerNormalizer(), UrlFilter.ONLY_HTTP,
+            new WaybackURLKeyMaker(), 100, metrics);
+        second.process("http://www.example.org/a");
+        second.process("http://www.example.org/a");
+        Gauge<?> hitRate = metrics.getGauges().get(name(CachingUrlProcessor.class, "cacheHitRate"));
+        assertThat((Double) hitRate.getValue(), is(0.5));
+    }
+}
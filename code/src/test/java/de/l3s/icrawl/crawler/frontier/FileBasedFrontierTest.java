@@ -3,6 +3,8 @@ package de.l3s.icrawl.crawler.frontier;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
 
@@ -13,8 +15,10 @@ import com.codahale.metrics.MetricRegistry;
 import de.l3s.icrawl.crawler.CrawlUrl;
 import de.l3s.icrawl.crawler.TestUtils;
 import de.l3s.icrawl.crawler.frontier.FileBasedFrontier;
+import de.l3s.icrawl.crawler.urls.NormalizedUrl;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class FileBasedFrontierTest {
@@ -31,5 +35,20 @@ public class FileBasedFrontierTest {
         }
     }
 
+    @Test
+    public void testRoundtripSurt() throws IOException {
+        File queueDirectory = Files.createTempDirectory("queue-").toFile();
+        try (FileBasedFrontier frontier = new FileBasedFrontier(queueDirectory, new MetricRegistry(), 2, false)) {
+            CrawlUrl seed = CrawlUrl.fromSeed("http://example.org/", 1.0f);
+            CrawlUrl outlink = seed.outlink(new NormalizedUrl("http://example.org/foo", "org,example)/foo"), 1.0f,
+                ZonedDateTime.now());
+            frontier.push(Arrays.asList(seed, outlink));
+            Optional<CrawlUrl> first = frontier.pop();
+            Optional<CrawlUrl> second = frontier.pop();
+            assertThat(first.get().getSurt(), is(nullValue()));
+            assertThat(second.get().getSurt(), is("org,example)/foo"));
+            assertThat(second.get().getReferrer(), is("http://example.org/"));
+        }
+    }
 
 }
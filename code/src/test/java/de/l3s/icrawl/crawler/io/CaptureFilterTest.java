@@ -0,0 +1,58 @@
+package de.l3s.icrawl.crawler.io;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+import de.l3s.icrawl.snapshots.SnapshotLocations;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CaptureFilterTest {
+
+    @Test
+    public void testFilter() {
+        MetricRegistry metrics = new MetricRegistry();
+        CaptureFilter filter = CaptureFilter.parse("text/html, application/xhtml+xml", "200", UrlFilter.ONLY_HTTP,
+            metrics);
+        SnapshotLocations locations = SnapshotLocations.builder(6)
+            .add("http://example.org/", 1, "a.warc.gz", 0, 10, "text/html", 200)
+            .add("http://example.org/", 2, "a.warc.gz", 10, 10, "image/png", 200)
+            .add("http://example.org/", 3, "a.warc.gz", 20, 10, "text/html", 302)
+            .add("ftp://example.org/", 4, "a.warc.gz", 30, 10, "text/html", 200)
+            .add("http://example.org/", 5, "a.warc.gz", 40, 10, "Text/HTML; charset=UTF-8")
+            .add("http://example.org/", 6, "a.warc.gz", 50, 10, "-", 200)
+            .build();
+
+        SnapshotLocations accepted = filter.filter(locations);
+
+        assertThat(accepted.size(), is(3));
+        assertThat(accepted.getCrawlTimeSeconds(0), is(1L));
+        assertThat(accepted.getCrawlTimeSeconds(1), is(5L));
+        assertThat(accepted.getCrawlTimeSeconds(2), is(6L));
+        assertThat(accepted.getStatus(1), is(SnapshotLocations.NO_STATUS));
+        assertThat(count(metrics, "accepted"), is(3L));
+        assertThat(count(metrics, "rejected", "mimeType"), is(1L));
+        assertThat(count(metrics, "rejected", "status"), is(1L));
+        assertThat(count(metrics, "rejected", "url"), is(1L));
+    }
+
+    @Test
+    public void testAcceptAll() {
+        CaptureFilter filter = CaptureFilter.acceptAll(new MetricRegistry());
+        SnapshotLocations locations = SnapshotLocations.builder(2)
+            .add("http://example.org/a.pdf", 1, "a.warc.gz", 0, 10, "application/pdf", 404)
+            .add("http://example.org/", 2, "a.warc.gz", 10, 10, "text/html", 200)
+            .build();
+        assertThat(filter.filter(locations), is(sameInstance(locations)));
+    }
+
+    private static long count(MetricRegistry metrics, String... names) {
+        return metrics.counter(name(CaptureFilter.class, names)).getCount();
+    }
+
+}
@@ -0,0 +1,166 @@
+package de.l3s.icrawl.crawler.io;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.metrics.MetricRegistry;
+
+import de.l3s.icrawl.crawler.CrawlUrl;
+import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.crawler.frontier.Frontier;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher.Pending;
+import de.l3s.icrawl.snapshots.Snapshot;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadAheadFetcherTest {
+
+    private static class QueueFrontier implements Frontier {
+        private final Deque<CrawlUrl> urls = new ArrayDeque<>();
+
+        @Override
+        public void push(Collection<CrawlUrl> newUrls) {
+            urls.addAll(newUrls);
+        }
+
+        @Override
+        public Optional<CrawlUrl> pop() {
+            return Optional.ofNullable(urls.pollFirst());
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private static ArchiveFetcher fetcher() throws IOException {
+        ArchiveFetcher fetcher = mock(ArchiveFetcher.class);
+        Answer<List<Snapshot>> fetch = invocation -> {
+            CrawlUrl url = (CrawlUrl) invocation.getArguments()[0];
+            Snapshot snapshot = new Snapshot(url.getUrl(), ZonedDateTime.now(), 200, "text/html",
+                Collections.emptyMap(), url.getUrl());
+            return Collections.singletonList(snapshot);
+        };
+        when(fetcher.get(any(CrawlUrl.class), any(TimeSpecification.class))).thenAnswer(fetch);
+        when(fetcher.get(any(CrawlUrl.class), any(), any(TimeSpecification.class))).thenAnswer(fetch);
+        return fetcher;
+    }
+
+    private static QueueFrontier frontier(String... urls) {
+        QueueFrontier frontier = new QueueFrontier();
+        for (String url : urls) {
+            frontier.push(Collections.singleton(CrawlUrl.fromSeed(url, 1.0f)));
+        }
+        return frontier;
+    }
+
+    @Test
+    public void testFetchesInOrder() throws IOException {
+        QueueFrontier frontier = frontier("http://a/", "http://b/", "http://c/", "http://d/");
+        ReadAheadFetcher readAhead = new ReadAheadFetcher(fetcher(), 2, Long.MAX_VALUE, new MetricRegistry());
+        for (String expected : new String[] { "http://a/", "http://b/", "http://c/", "http://d/" }) {
+            Pending next = readAhead.next(frontier, null);
+            assertThat(next.getUrl().getUrl(), is(expected));
+            List<Snapshot> snapshots = readAhead.get(next, null);
+            assertThat(snapshots, hasSize(1));
+            assertThat(snapshots.get(0).getContent(), is((Object) expected));
+        }
+        assertThat(readAhead.next(frontier, null), is(nullValue()));
+        readAhead.close(frontier);
+    }
+
+    @Test
+    public void testReadsAhead() throws IOException {
+        QueueFrontier frontier = frontier("http://a/", "http://b/", "http://c/", "http://d/");
+        ReadAheadFetcher readAhead = new ReadAheadFetcher(fetcher(), 2, Long.MAX_VALUE, new MetricRegistry());
+        Pending next = readAhead.next(frontier, null);
+        assertThat(next.getUrl().getUrl(), is("http://a/"));
+        // the two following URLs have been taken from the frontier
+        assertThat(frontier.urls, hasSize(1));
+        readAhead.close(frontier);
+        assertThat(frontier.urls, hasSize(3));
+    }
+
+    @Test
+    public void testBudgetStopsReadAhead() throws Exception {
+        QueueFrontier frontier = frontier("http://a/", "http://b/", "http://c/", "http://d/", "http://e/");
+        MetricRegistry metrics = new MetricRegistry();
+        ReadAheadFetcher readAhead = new ReadAheadFetcher(fetcher(), 2, 1, metrics);
+        readAhead.get(readAhead.next(frontier, null), null);
+        // wait until the snapshots of b are fetched and count against the budget
+        for (int i = 0; i < 1000 && readAhead.getBufferedBytes() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(readAhead.getBufferedBytes(), is(greaterThan(0L)));
+
+        Pending next = readAhead.next(frontier, null);
+        assertThat(next.getUrl().getUrl(), is("http://b/"));
+        // only c was taken, although the depth allows two URLs
+        assertThat(frontier.urls, hasSize(2));
+        assertThat(metrics.meter(name(ReadAheadFetcher.class, "budgetExceeded")).getCount(), is(greaterThan(0L)));
+        readAhead.close(frontier);
+    }
+
+    @Test
+    public void testSharedBudget() throws Exception {
+        AtomicLong bufferedBytes = new AtomicLong();
+        MetricRegistry metrics = new MetricRegistry();
+        QueueFrontier frontier = frontier("http://a/", "http://b/", "http://c/");
+        ReadAheadFetcher first = new ReadAheadFetcher(fetcher(), 2, 1, bufferedBytes, metrics);
+        first.next(frontier, null);
+        for (int i = 0; i < 1000 && bufferedBytes.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(bufferedBytes.get(), is(greaterThan(0L)));
+
+        // the snapshots waiting in the first fetcher count against the budget of the second
+        QueueFrontier otherFrontier = frontier("http://x/", "http://y/", "http://z/");
+        ReadAheadFetcher second = new ReadAheadFetcher(fetcher(), 2, 1, bufferedBytes, metrics);
+        assertThat(second.next(otherFrontier, null).getUrl().getUrl(), is("http://x/"));
+        assertThat(otherFrontier.urls, hasSize(1));
+        first.close(frontier);
+        second.close(otherFrontier);
+    }
+
+    @Test
+    public void testCloseReturnsUrls() throws IOException {
+        QueueFrontier frontier = frontier("http://a/", "http://b/", "http://c/");
+        ReadAheadFetcher readAhead = new ReadAheadFetcher(fetcher(), 2, Long.MAX_VALUE, new MetricRegistry());
+        Pending next = readAhead.next(frontier, null);
+        readAhead.get(next, null);
+        readAhead.close(frontier);
+        assertThat(frontier.pop().get().getUrl(), is("http://b/"));
+        assertThat(frontier.pop().get().getUrl(), is("http://c/"));
+    }
+
+    @Test
+    public void testSynchronousWithoutDepth() throws IOException {
+        QueueFrontier frontier = frontier("http://a/", "http://b/");
+        ReadAheadFetcher readAhead = new ReadAheadFetcher(fetcher(), 0, 0, new MetricRegistry());
+        Pending next = readAhead.next(frontier, null);
+        assertThat(frontier.urls, hasSize(1));
+        List<Snapshot> snapshots = readAhead.get(next, null);
+        assertThat(snapshots.get(0).getContent(), is((Object) "http://a/"));
+        readAhead.close(frontier);
+        assertThat(frontier.urls, contains(CrawlUrl.fromSeed("http://b/", 1.0f)));
+    }
+
+}
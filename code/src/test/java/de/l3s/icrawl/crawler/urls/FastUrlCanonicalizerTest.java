@@ -0,0 +1,113 @@
+package de.l3s.icrawl.crawler.urls;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+public class FastUrlCanonicalizerTest {
+    private static final String[] SCHEMES = { "http://", "https://", "HTTP://", "ftp://", "" };
+    private static final String LONG_HOST = Strings.repeat("a.", 126) + "org";
+    private static final String[] HOSTS = { "www.example.org", "example.org", "a-b.example.co.uk", "WWW.Example.org",
+            "www.example.org:80", "www.example.org:8080", "user@example.org", "192.168.0.1", "example.org.",
+            "xn--bcher-kva.example", "www..example.org", "www.example.123", "", "-a.example.org",
+            "a-.example.org", "ab--cd.example.org", "www.example-", LONG_HOST };
+    private static final String[] SEGMENTS = { "foo", "Bar", "index.html", "a-b_c~d", "", ".", "..", "%20",
+            "%2e", "a b", "ä", "a\\b", "a'b", "x:y@z", "a+b", "!$&()*,;=", "{}", "a\nb", "\t" };
+    private static final String[] NAMES = { "a", "b", "B", "id", "utm_source", "UTM_medium", "sessionid",
+            "PHPSESSID", "q", "", "a+b", "a%20b", "ä", "x/y?" };
+    private static final String[] VALUES = { "", "1", "2", "foo", "a=b", "a+b", "%41", "ä", " ", "/x?y:z@" };
+    private static final String[] FRAGMENTS = { "", "#", "#top", "#a#b", "#ä", "# x" };
+
+    private static final UrlCanonicalizerNormalizer normalizer = new UrlCanonicalizerNormalizer();
+
+    private static String canonicalize(String url) {
+        return FastUrlCanonicalizer.canonicalize(url, UrlCanonicalizerNormalizer.EXCLUDE_PATTERN);
+    }
+
+    @Test
+    public void testCommonUrls() {
+        assertThat(canonicalize("http://www.example.org"), is("http://www.example.org/"));
+        assertThat(canonicalize("https://www.example.org/a/b?b=2&a=1&b=0#top"),
+            is("https://www.example.org/a/b?a=1&b=2&b=0"));
+        assertThat(canonicalize("http://www.example.org/?b=2&a=1"), is("http://www.example.org/?a=1&b=2"));
+        assertThat(canonicalize("http://www.example.org/a?utm_source=x&sessionId=1"), is("http://www.example.org/a"));
+        assertThat(canonicalize("http://www.example.org/a?a=&b"), is("http://www.example.org/a?a&b"));
+        assertThat(canonicalize("http://www.example.org/a?&a=1&&b=2&"), is("http://www.example.org/a?a=1&b=2"));
+        assertThat(canonicalize("http://www.example.org/?"), is("http://www.example.org/"));
+        String canonical = "http://www.example.org/a//b.html?a=1&a=0&b=x=y";
+        assertThat(canonicalize(canonical), is(sameInstance(canonical)));
+    }
+
+    @Test
+    public void testFallback() {
+        for (String url : Arrays.asList("HTTP://www.example.org/", "ftp://www.example.org/",
+            "http://WWW.example.org/", "http://www.example.org:8080/", "http://user@example.org/",
+            "http://192.168.0.1/", "http://www.example.org./", "http://xn--bcher-kva.example/",
+            "http://www.example.org/foo/../bar/", "http://www.example.org/foo/.", "http://www.example.org/\nfoo",
+            "http://www.example.org/%20", "http://www.example.org/a\\b", "http://www.example.org/ä",
+            "http://www.example.org/?a=b+c", "http://www.example.org/?=x", "http://www.example.org/#ä",
+            "http://-a.example.org/", "http://a-.example.org/", "http://ab--cd.example.org/",
+            "http://www.example-/", "http://" + LONG_HOST + "/")) {
+            assertThat(url, canonicalize(url), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void testSameAsParser() {
+        List<String> urls = new ArrayList<>(Arrays.asList("http://www.example.org/?b=ä&a= f",
+            "http://www.example.org/foo/../bar/", "http://www.example.org/index.html", "http://www.example.org/\nfoo",
+            "http://www.example.org/\rfoo", "http://www.example.org/\r\nfoo", "http://www.example.org/\tfoo"));
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            urls.add(randomUrl(random));
+        }
+        int fastPath = 0;
+        for (String url : urls) {
+            String canonical = canonicalize(url);
+            if (canonical != null) {
+                assertThat(url, canonical, is(normalizer.normalizeWithParser(url)));
+                fastPath++;
+            }
+        }
+        assertThat(fastPath, greaterThan(urls.size() / 10));
+    }
+
+    private static String randomUrl(Random random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(pick(random, SCHEMES, 2)).append(pick(random, HOSTS, 3));
+        int segments = random.nextInt(4);
+        for (int i = 0; i < segments; i++) {
+            sb.append('/').append(pick(random, SEGMENTS, 4));
+        }
+        int parameters = random.nextInt(4) - 1;
+        if (parameters >= 0) {
+            sb.append('?');
+        }
+        for (int i = 0; i < parameters; i++) {
+            if (i > 0 || random.nextInt(8) == 0) {
+                sb.append('&');
+            }
+            sb.append(pick(random, NAMES, 4));
+            if (random.nextInt(4) > 0) {
+                sb.append('=').append(pick(random, VALUES, 4));
+            }
+        }
+        return sb.append(pick(random, FRAGMENTS, 3)).toString();
+    }
+
+    /** mostly one of the first, common values */
+    private static String pick(Random random, String[] values, int common) {
+        return values[random.nextInt(random.nextInt(3) == 0 ? values.length : common)];
+    }
+}
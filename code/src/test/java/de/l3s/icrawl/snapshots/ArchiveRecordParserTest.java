@@ -0,0 +1,72 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.archive.io.ArchiveReader;
+import org.archive.io.ArchiveReaderFactory;
+import org.archive.io.ArchiveRecord;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+
+import de.l3s.icrawl.util.PooledByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ArchiveRecordParserTest {
+
+    static byte[] warcRecord(String url, String contentType, String body) {
+        String http = "HTTP/1.1 200 OK\r\nContent-Type: " + contentType + "\r\n\r\n" + body;
+        byte[] httpBytes = http.getBytes(UTF_8);
+        String header = "WARC/1.0\r\n"
+                + "WARC-Type: response\r\n"
+                + "WARC-Target-URI: " + url + "\r\n"
+                + "WARC-Date: 2006-06-10T12:00:00Z\r\n"
+                + "WARC-Record-ID: <urn:uuid:6b5e2e6a-3f4d-4f6e-9a33-2f4e3d1f6a01>\r\n"
+                + "Content-Type: application/http; msgtype=response\r\n"
+                + "Content-Length: " + httpBytes.length + "\r\n\r\n";
+        return (header + http + "\r\n\r\n").getBytes(UTF_8);
+    }
+
+    private static Snapshot parse(ArchiveRecordParser parser, byte[] warc) throws IOException {
+        try (ArchiveReader reader = ArchiveReaderFactory.get("test.warc", new ByteArrayInputStream(warc), true);
+                ArchiveRecord record = reader.get()) {
+            return parser.readSnapshot(record);
+        }
+    }
+
+    @Test
+    public void testReadSnapshot() throws IOException {
+        String body = "<html><body>Grüße</body></html>";
+        ArchiveRecordParser parser = new ArchiveRecordParser();
+        Snapshot snapshot = parse(parser, warcRecord("http://example.org/", "text/html; charset=UTF-8", body));
+        assertThat(snapshot.getOriginalUrl(), is("http://example.org/"));
+        assertThat(snapshot.getStatus(), is(200));
+        assertThat(snapshot.getCharset(), is(UTF_8));
+        assertThat(snapshot.getRawContent().length(), is(body.getBytes(UTF_8).length));
+        assertThat(snapshot.getContent(), is((Object) body));
+        assertThat(snapshot.getHeaders().get("Content-Type"), is("text/html; charset=UTF-8"));
+        snapshot.close();
+        // the crawler releases losing snapshots early and closes all of them again
+        snapshot.close();
+    }
+
+    @Test
+    public void testTruncatesLargePayloads() throws IOException {
+        MetricRegistry metrics = new MetricRegistry();
+        ArchiveRecordParser parser = new ArchiveRecordParser(metrics, 10_000);
+        String body = Strings.repeat("0123456789", 5000);
+        Snapshot snapshot = parse(parser, warcRecord("http://example.org/", "text/plain; charset=UTF-8", body));
+        assertThat(snapshot.getContent(), is((Object) body.substring(0, 10_000)));
+        assertThat(metrics.meter(MetricRegistry.name(ArchiveRecordParser.class, "truncated")).getCount(), is(1L));
+
+        Snapshot binary = parse(parser, warcRecord("http://example.org/", "image/png", body.substring(0, 5000)));
+        assertThat(((PooledByteBuffer) binary.getContent()).length(), is(5000));
+        binary.close();
+    }
+
+}
@@ -0,0 +1,53 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ArchivedUrlFilterTest {
+
+    @Test
+    public void testRoundtrip() throws IOException {
+        int numUrls = 10_000;
+        ArchivedUrlFilter.Builder builder = ArchivedUrlFilter.builder(numUrls, 0.01);
+        for (int i = 0; i < numUrls; i++) {
+            builder.put("de,example)/page" + i);
+        }
+        File file = Files.createTempFile("archived-urls-", ".bloom").toFile();
+        try {
+            builder.writeTo(file);
+            ArchivedUrlFilter filter = ArchivedUrlFilter.open(file);
+            for (int i = 0; i < numUrls; i++) {
+                assertTrue(filter.mightContain("de,example)/page" + i));
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < numUrls; i++) {
+                if (filter.mightContain("de,example)/other" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertThat(falsePositives, is(lessThan(numUrls / 50)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidFile() throws IOException {
+        File file = Files.createTempFile("archived-urls-", ".bloom").toFile();
+        try {
+            Files.write(file.toPath(), new byte[32]);
+            ArchivedUrlFilter.open(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import org.archive.url.URLKeyMaker;
+import org.archive.url.WaybackURLKeyMaker;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+import de.l3s.icrawl.crawler.CrawlUrl;
+import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.crawler.frontier.Frontier;
+import de.l3s.icrawl.crawler.frontier.InMemoryFrontier;
+import de.l3s.icrawl.crawler.io.ArchiveFetcher;
+import de.l3s.icrawl.crawler.io.CaptureFilter;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher;
+import de.l3s.icrawl.crawler.io.ReadAheadFetcher.Pending;
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class AsyncHBaseSnapshotsLocatorTest {
+    private final URLKeyMaker keyMaker = new WaybackURLKeyMaker();
+
+    @Test
+    public void testFindLocationsAsync() throws Exception {
+        String url = "http://www.example.org/foo";
+        FakeCdxTable cdx = new FakeCdxTable()
+            .addCapture(keyMaker.makeKey(url), url, "20060610120000", "DE-1.warc.gz", 1234, "text/html")
+            .addCapture(keyMaker.makeKey(url), url, "20060710120000", "DE-2.warc.gz", 42, "text/html");
+        try (AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker,
+            new MetricRegistry(), 2, 10, 100)) {
+            SnapshotLocations locations = locator.findLocationsAsync(url).get(10, SECONDS);
+            assertThat(locations.size(), is(2));
+            assertThat(locations.getUrl(0), is(url));
+
+            SnapshotLocations missing = locator.findLocationsAsync("http://www.example.org/bar").get(10, SECONDS);
+            assertThat(missing.isEmpty(), is(true));
+
+            assertThat(locator.findLocations(url).size(), is(2));
+        }
+    }
+
+    @Test
+    public void testCoalescesWaitingLookups() throws Exception {
+        FakeCdxTable cdx = new FakeCdxTable()
+            .addCapture("a", "http://a/", "20060610120000", "DE-1.warc.gz", 1, "text/html")
+            .addCapture("b", "http://b/", "20060610120000", "DE-1.warc.gz", 2, "text/html")
+            .addCapture("c", "http://c/", "20060610120000", "DE-1.warc.gz", 3, "text/html");
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cdx.setListener(numRows -> {
+            entered.countDown();
+            try {
+                release.await(10, SECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        });
+        try (AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker,
+            new MetricRegistry(), 1, 10, 100)) {
+            CompletableFuture<SnapshotLocations> a = locator.lookup("a", false);
+            assertTrue(entered.await(10, SECONDS));
+            // the only I/O thread is blocked, so these are queued
+            CompletableFuture<SnapshotLocations> b1 = locator.lookup("b", false);
+            CompletableFuture<SnapshotLocations> b2 = locator.lookup("b", false);
+            CompletableFuture<SnapshotLocations> c = locator.lookup("c", false);
+            assertThat(b2, is(sameInstance(b1)));
+            release.countDown();
+
+            assertThat(a.get(10, SECONDS).getWarcFileOffset(0), is(1L));
+            assertThat(b1.get(10, SECONDS).getWarcFileOffset(0), is(2L));
+            assertThat(c.get(10, SECONDS).getWarcFileOffset(0), is(3L));
+            assertThat(cdx.getRequests(), contains(1, 2));
+        }
+    }
+
+    @Test
+    public void testFailedLookup() throws Exception {
+        FakeCdxTable cdx = new FakeCdxTable();
+        cdx.setListener(numRows -> {
+            throw new IOException("region server unavailable");
+        });
+        try (AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker,
+            new MetricRegistry(), 1, 10, 100)) {
+            try {
+                locator.lookup("a", false).get(10, SECONDS);
+                fail("Expected lookup to fail");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(instanceOf(IOException.class)));
+            }
+        }
+    }
+
+    /** Blocks the I/O thread in the first request until released */
+    private static CountDownLatch blockRequests(FakeCdxTable cdx, CountDownLatch entered) {
+        CountDownLatch release = new CountDownLatch(1);
+        cdx.setListener(numRows -> {
+            entered.countDown();
+            try {
+                release.await(10, SECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        });
+        return release;
+    }
+
+    @Test
+    public void testFullQueueFailsAsyncLookup() throws Exception {
+        FakeCdxTable cdx = new FakeCdxTable();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockRequests(cdx, entered);
+        try (AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker,
+            new MetricRegistry(), 1, 10, 1)) {
+            CompletableFuture<SnapshotLocations> a = locator.lookup("a", false);
+            assertTrue(entered.await(10, SECONDS));
+            CompletableFuture<SnapshotLocations> b = locator.lookup("b", false);
+            CompletableFuture<SnapshotLocations> c = locator.lookup("c", false);
+            // does not wait for the queue
+            assertThat(c.isCompletedExceptionally(), is(true));
+            release.countDown();
+            assertThat(a.get(10, SECONDS).isEmpty(), is(true));
+            assertThat(b.get(10, SECONDS).isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void testCloseFailsQueuedLookups() throws Exception {
+        FakeCdxTable cdx = new FakeCdxTable();
+        CountDownLatch entered = new CountDownLatch(1);
+        blockRequests(cdx, entered);
+        AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker,
+            new MetricRegistry(), 1, 10, 100);
+        CompletableFuture<SnapshotLocations> a = locator.lookup("a", false);
+        assertTrue(entered.await(10, SECONDS));
+        CompletableFuture<SnapshotLocations> b = locator.lookup("b", false);
+        locator.close();
+
+        for (CompletableFuture<SnapshotLocations> future : Arrays.asList(a, b, locator.lookup("c", false))) {
+            assertThat(future.isCompletedExceptionally(), is(true));
+        }
+    }
+
+    @Test
+    public void testReadAheadStartsLookupsWithoutBlocking() throws Exception {
+        FakeCdxTable cdx = new FakeCdxTable();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = blockRequests(cdx, entered);
+        MetricRegistry metrics = new MetricRegistry();
+        AsyncHBaseSnapshotsLocator locator = new AsyncHBaseSnapshotsLocator(cdx.connection(), keyMaker, metrics,
+            1, 10, 100);
+        // only the lookups are tested, no records are read
+        CaptureFilter noReads = new CaptureFilter(ImmutableSet.of("application/pdf"), ImmutableSet.<Integer> of(),
+            UrlFilter.ACCEPT_ALL, metrics);
+        TimeSpecification referenceTime = TimeSpecification.interval(LocalDate.of(2006, 1, 1),
+            LocalDate.of(2006, 12, 31), Period.ofMonths(1));
+        Frontier frontier = new InMemoryFrontier(metrics);
+        frontier.push(Arrays.asList(CrawlUrl.fromSeed("http://a/", 1.0f), CrawlUrl.fromSeed("http://b/", 1.0f),
+            CrawlUrl.fromSeed("http://c/", 1.0f)));
+        try (ArchiveFetcher.Factory factory = new ArchiveFetcher.Factory(locator, "/data", metrics, null,
+            mock(SnapshotReader.class), new RangeCoalescer(0, 0), 1024, noReads).withReadAhead(2, Long.MAX_VALUE)) {
+            ReadAheadFetcher readAhead = factory.getReadAhead(1);
+            Pending first = readAhead.next(frontier, referenceTime);
+            assertTrue(entered.await(10, SECONDS));
+            // the lookups of the URLs read ahead are in flight while the first one is blocked
+            assertThat(metrics.counter(name(AsyncHBaseSnapshotsLocator.class, "inFlight")).getCount(), is(3L));
+            release.countDown();
+            assertThat(readAhead.get(first, referenceTime), is(empty()));
+            readAhead.close(frontier);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.mockito.invocation.InvocationOnMock;
+
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.COL_CRAWL_TIME;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.COL_MIME;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.COL_OFFSET;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.COL_ORIGINAL_URL;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.COL_WARC_FILE;
+import static de.l3s.icrawl.snapshots.HBaseSnapshotsLocator.FAMILY;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory stand-in for the HBase CDX table.
+ *
+ * Answers gets, multi-gets and scans of a mocked {@link Connection} from rows
+ * added through {@link #addCapture}.
+ */
+class FakeCdxTable {
+    interface RequestListener {
+        void beforeRequest(int numRows) throws IOException;
+    }
+
+    private final NavigableMap<byte[], List<Cell>> rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    private final List<Integer> requests = new CopyOnWriteArrayList<>();
+    private volatile RequestListener listener = numRows -> {};
+
+    FakeCdxTable addCapture(String surt, String url, String timestamp, String warcFile, long offset,
+            String mimeType) {
+        byte[] row = Bytes.toBytes(surt);
+        List<Cell> cells = rows.computeIfAbsent(row, r -> new ArrayList<>());
+        long version = cells.size() / 5 + 1;
+        cells.add(new KeyValue(row, FAMILY, COL_ORIGINAL_URL, version, Bytes.toBytes(url)));
+        cells.add(new KeyValue(row, FAMILY, COL_CRAWL_TIME, version, Bytes.toBytes(timestamp)));
+        cells.add(new KeyValue(row, FAMILY, COL_WARC_FILE, version, Bytes.toBytes(warcFile)));
+        cells.add(new KeyValue(row, FAMILY, COL_OFFSET, version, Bytes.toBytes(Long.toString(offset))));
+        cells.add(new KeyValue(row, FAMILY, COL_MIME, version, Bytes.toBytes(mimeType)));
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        return this;
+    }
+
+    void setListener(RequestListener listener) {
+        this.listener = listener;
+    }
+
+    /** Number of rows requested by each call to the table */
+    List<Integer> getRequests() {
+        return requests;
+    }
+
+    Connection connection() throws IOException {
+        Table table = mock(Table.class);
+        when(table.get(any(Get.class))).thenAnswer(invocation -> {
+            beforeRequest(1);
+            return result(((Get) invocation.getArguments()[0]).getRow());
+        });
+        when(table.get(anyListOf(Get.class))).thenAnswer(this::multiGet);
+        when(table.getScanner(any(Scan.class))).thenAnswer(this::scan);
+        Connection connection = mock(Connection.class);
+        when(connection.getTable(any(TableName.class))).thenReturn(table);
+        return connection;
+    }
+
+    private void beforeRequest(int numRows) throws IOException {
+        requests.add(numRows);
+        listener.beforeRequest(numRows);
+    }
+
+    private Result[] multiGet(InvocationOnMock invocation) throws IOException {
+        @SuppressWarnings("unchecked")
+        List<Get> gets = (List<Get>) invocation.getArguments()[0];
+        beforeRequest(gets.size());
+        Result[] results = new Result[gets.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = result(gets.get(i).getRow());
+        }
+        return results;
+    }
+
+    private ResultScanner scan(InvocationOnMock invocation) throws IOException {
+        Scan scan = (Scan) invocation.getArguments()[0];
+        byte[] stopRow = scan.getStopRow();
+        NavigableMap<byte[], List<Cell>> range = stopRow == null || stopRow.length == 0
+                ? rows.tailMap(scan.getStartRow(), true) : rows.subMap(scan.getStartRow(), true, stopRow, false);
+        beforeRequest(range.size());
+        List<Result> results = new ArrayList<>(range.size());
+        for (Map.Entry<byte[], List<Cell>> row : range.entrySet()) {
+            results.add(Result.create(row.getValue()));
+        }
+        ResultScanner scanner = mock(ResultScanner.class);
+        Iterator<Result> iterator = results.iterator();
+        when(scanner.iterator()).thenReturn(iterator);
+        when(scanner.next()).thenAnswer(i -> iterator.hasNext() ? iterator.next() : null);
+        return scanner;
+    }
+
+    private Result result(byte[] row) {
+        List<Cell> cells = rows.get(row);
+        return Result.create(cells != null ? cells : Collections.<Cell> emptyList());
+    }
+}
@@ -0,0 +1,81 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.ByteStreams;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FileHandlePoolTest {
+    private File directory;
+    private Path first;
+    private Path second;
+    private MetricRegistry metrics;
+    private FileHandlePool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("handle-pool-").toFile();
+        first = createFile("first", "0123456789");
+        second = createFile("second", "abcdefghij");
+        metrics = new MetricRegistry();
+        pool = new FileHandlePool(FileSystem.getLocal(new Configuration()), 1, metrics);
+    }
+
+    private Path createFile(String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(US_ASCII));
+        return new Path(file.toURI());
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private String read(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            return new String(ByteStreams.toByteArray(in), US_ASCII);
+        }
+    }
+
+    @Test
+    public void testSharedHandle() throws IOException {
+        try (InputStream a = pool.openStream(first, 2); InputStream b = pool.openStream(first, 5)) {
+            assertThat(read(a), is("23456789"));
+            assertThat(read(b), is("56789"));
+        }
+        assertThat(read(pool.openStream(first, 9)), is("9"));
+        assertThat(metrics.meter("de.l3s.icrawl.snapshots.FileHandlePool.misses").getCount(), is(1L));
+        assertThat(metrics.meter("de.l3s.icrawl.snapshots.FileHandlePool.hits").getCount(), is(2L));
+        assertThat(metrics.counter("de.l3s.icrawl.snapshots.FileHandlePool.openFiles").getCount(), is(1L));
+    }
+
+    @Test
+    public void testEvictionKeepsHandlesInUse() throws IOException {
+        InputStream a = pool.openStream(first, 0);
+        // evicts the first file, which is still being read
+        assertThat(read(pool.openStream(second, 8)), is("ij"));
+        assertThat(metrics.counter("de.l3s.icrawl.snapshots.FileHandlePool.openFiles").getCount(), is(2L));
+        assertThat(read(a), is("0123456789"));
+        assertThat(metrics.counter("de.l3s.icrawl.snapshots.FileHandlePool.openFiles").getCount(), is(1L));
+    }
+
+}
@@ -0,0 +1,89 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import org.archive.io.ArchiveReader;
+import org.archive.io.ArchiveRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.codahale.metrics.MetricRegistry;
+
+import static de.l3s.icrawl.snapshots.ArchiveRecordParserTest.warcRecord;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MappedSnapshotReaderTest {
+    private static final String FIRST = "<html><body>first</body></html>";
+    private static final String SECOND = "<html><body>second</body></html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ArchiveRecordParser parser = new ArchiveRecordParser();
+
+    private Object read(MappedSnapshotReader reader, String file, long offset, long length) throws IOException {
+        SnaphotLocation location = new SnaphotLocation("http://example.org/", null, file, offset, length, "text/html",
+            null);
+        try (ArchiveReader archiveReader = reader.open(location); ArchiveRecord record = archiveReader.get();
+                Snapshot snapshot = parser.readSnapshot(record)) {
+            return snapshot.getContent();
+        }
+    }
+
+    @Test
+    public void testUncompressed() throws IOException {
+        byte[] first = warcRecord("http://example.org/", "text/html; charset=UTF-8", FIRST);
+        byte[] second = warcRecord("http://example.org/", "text/html; charset=UTF-8", SECOND);
+        File file = folder.newFile("test.warc");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(first);
+        bos.write(second);
+        Files.write(file.toPath(), bos.toByteArray());
+
+        try (MappedSnapshotReader reader = new MappedSnapshotReader(4, new MetricRegistry())) {
+            assertThat(read(reader, file.getPath(), 0, first.length), is((Object) FIRST));
+            assertThat(read(reader, file.getPath(), first.length, second.length), is((Object) SECOND));
+            // without a known length the record is read up to the end of the file
+            assertThat(read(reader, file.toURI().toString(), first.length, -1), is((Object) SECOND));
+        }
+    }
+
+    @Test
+    public void testCompressed() throws IOException {
+        byte[] first = gzip(warcRecord("http://example.org/", "text/html; charset=UTF-8", FIRST));
+        byte[] second = gzip(warcRecord("http://example.org/", "text/html; charset=UTF-8", SECOND));
+        File file = folder.newFile("test.warc.gz");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(first);
+        bos.write(second);
+        Files.write(file.toPath(), bos.toByteArray());
+
+        try (MappedSnapshotReader reader = new MappedSnapshotReader(4, new MetricRegistry())) {
+            assertThat(read(reader, file.getPath(), first.length, second.length), is((Object) SECOND));
+            assertThat(read(reader, file.getPath(), 0, first.length), is((Object) FIRST));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOffsetOutsideOfFile() throws IOException {
+        File file = folder.newFile("empty.warc");
+        try (MappedSnapshotReader reader = new MappedSnapshotReader(4, new MetricRegistry())) {
+            read(reader, file.getPath(), 100, 10);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+            gz.write(data);
+        }
+        return bos.toByteArray();
+    }
+
+}
@@ -0,0 +1,67 @@
+package de.l3s.icrawl.snapshots;
+
+import java.io.IOException;
+
+import org.archive.format.http.HttpHeaders;
+import org.junit.Test;
+
+import de.l3s.icrawl.snapshots.OnlyHtmlCharsetDetector.Encoding;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.equalToIgnoringCase;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OnlyHtmlCharsetDetectorTest {
+
+    private static Encoding classify(byte[] bytes) {
+        return OnlyHtmlCharsetDetector.classify(bytes, bytes.length);
+    }
+
+    @Test
+    public void testClassify() {
+        assertThat(classify("<html>plain</html>".getBytes(UTF_8)), is(Encoding.ASCII));
+        assertThat(classify("<html>Grüße € 𝄞</html>".getBytes(UTF_8)), is(Encoding.UTF_8));
+        assertThat(classify("<html>Grüße</html>".getBytes(ISO_8859_1)), is(Encoding.UNKNOWN));
+        // overlong encoding of '/'
+        assertThat(classify(new byte[] { 'a', (byte) 0xC0, (byte) 0xAF }), is(Encoding.UNKNOWN));
+        // encoded surrogate
+        assertThat(classify(new byte[] { (byte) 0xED, (byte) 0xA0, (byte) 0x80 }), is(Encoding.UNKNOWN));
+    }
+
+    @Test
+    public void testClassifyTruncatedSequence() {
+        byte[] bytes = "abcü".getBytes(UTF_8);
+        assertThat(OnlyHtmlCharsetDetector.classify(bytes, bytes.length - 1), is(Encoding.UTF_8));
+    }
+
+    @Test
+    public void testHost() {
+        assertThat(OnlyHtmlCharsetDetector.host("http://WWW.Example.org:8080/a?b"), is("www.example.org"));
+        assertThat(OnlyHtmlCharsetDetector.host("https://example.org"), is("example.org"));
+        assertThat(OnlyHtmlCharsetDetector.host("example.org/"), is(nullValue()));
+        assertThat(OnlyHtmlCharsetDetector.host(null), is(nullValue()));
+    }
+
+    @Test
+    public void testUtf8WithoutDeclaration() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "text/html");
+        byte[] content = "<html><body>Grüße</body></html>".getBytes(UTF_8);
+        OnlyHtmlCharsetDetector detector = new OnlyHtmlCharsetDetector();
+        assertThat(detector.getCharset(content, content.length, headers, "http://example.org/"), is("UTF-8"));
+    }
+
+    @Test
+    public void testHeaderCharset() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "text/html; charset=ISO-8859-1");
+        byte[] content = "<html><body>Grüße</body></html>".getBytes(UTF_8);
+        OnlyHtmlCharsetDetector detector = new OnlyHtmlCharsetDetector();
+        assertThat(detector.getCharset(content, content.length, headers, "http://example.org/"),
+            is(equalToIgnoringCase("ISO-8859-1")));
+    }
+
+}
@@ -0,0 +1,128 @@
+package de.l3s.icrawl.snapshots;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.archive.url.WaybackURLKeyMaker;
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+import de.l3s.icrawl.crawler.CrawlUrl;
+import de.l3s.icrawl.crawler.TimeSpecification;
+import de.l3s.icrawl.crawler.io.ArchiveFetcher;
+import de.l3s.icrawl.crawler.io.CaptureFilter;
+import de.l3s.icrawl.crawler.urls.UrlFilter;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class PrefetchingSnapshotsLocatorTest {
+
+    private static FakeCdxTable createTable() {
+        return new FakeCdxTable()
+            .addCapture("de,spiegel)/", "http://www.spiegel.de/", "20060610120000", "DE-1.warc.gz", 1, "text/html")
+            .addCapture("de,spiegel)/", "http://www.spiegel.de/", "20060710120000", "DE-2.warc.gz", 2, "text/html")
+            .addCapture("de,spiegel)/politik", "http://www.spiegel.de/politik", "20060610120000", "DE-1.warc.gz", 3,
+                "text/html")
+            .addCapture("de,spiegel,wissen)/", "http://wissen.spiegel.de/", "20060610120000", "DE-1.warc.gz", 4,
+                "text/html")
+            .addCapture("de,zeit)/", "http://www.zeit.de/", "20060610120000", "DE-1.warc.gz", 5, "text/html");
+    }
+
+    @Test
+    public void testHostPrefix() {
+        assertThat(PrefetchingSnapshotsLocator.hostPrefix("de,spiegel)/politik"), is("de,spiegel)"));
+        assertThat(PrefetchingSnapshotsLocator.hostPrefix("de,spiegel:8080)/"), is("de,spiegel:8080)"));
+        assertThat(PrefetchingSnapshotsLocator.hostPrefix("no-host"), is(nullValue()));
+    }
+
+    @Test
+    public void testScanPrefix() throws Exception {
+        FakeCdxTable cdx = createTable();
+        MetricRegistry metrics = new MetricRegistry();
+        try (HBaseSnapshotsLocator locator = new HBaseSnapshotsLocator(cdx.connection(), new WaybackURLKeyMaker(),
+            metrics)) {
+            assertThat(locator.scanPrefix("de,spiegel)", 10).keySet(), contains("de,spiegel)/", "de,spiegel)/politik"));
+            assertThat(locator.scanPrefix("de,spiegel)", 1).keySet(), contains("de,spiegel)/"));
+            assertThat(locator.scanPrefix("de,spiegel)", 10).get("de,spiegel)/").size(), is(2));
+        }
+    }
+
+    @Test
+    public void testServesSiblingsFromPrefetchedRange() throws Exception {
+        FakeCdxTable cdx = createTable();
+        MetricRegistry metrics = new MetricRegistry();
+        WaybackURLKeyMaker keyMaker = new WaybackURLKeyMaker();
+        try (PrefetchingSnapshotsLocator locator = new PrefetchingSnapshotsLocator(
+            new HBaseSnapshotsLocator(cdx.connection(), keyMaker, metrics), keyMaker, metrics, 1000, 10, 1)) {
+            locator.loadHost("de,spiegel)");
+            int requests = cdx.getRequests().size();
+
+            assertThat(locator.findInternal("de,spiegel)/").size(), is(2));
+            assertThat(locator.findInternal("de,spiegel)/politik").size(), is(1));
+            // the host range is complete, so this is known to be missing
+            assertThat(locator.findInternal("de,spiegel)/sport").isEmpty(), is(true));
+            assertThat(cdx.getRequests().size(), is(requests));
+        }
+    }
+
+    @Test
+    public void testIncompleteRangeFallsBackToLookup() throws Exception {
+        FakeCdxTable cdx = createTable();
+        MetricRegistry metrics = new MetricRegistry();
+        WaybackURLKeyMaker keyMaker = new WaybackURLKeyMaker();
+        try (PrefetchingSnapshotsLocator locator = new PrefetchingSnapshotsLocator(
+            new HBaseSnapshotsLocator(cdx.connection(), keyMaker, metrics), keyMaker, metrics, 1000, 1, 1)) {
+            locator.loadHost("de,spiegel)");
+            int requests = cdx.getRequests().size();
+
+            assertThat(locator.findInternal("de,spiegel)/").size(), is(2));
+            assertThat(cdx.getRequests().size(), is(requests));
+            assertThat(locator.findInternal("de,spiegel)/politik").size(), is(1));
+            assertThat(cdx.getRequests().size(), is(requests + 1));
+            // served from the lookup cache
+            assertThat(locator.findInternal("de,spiegel)/politik").size(), is(1));
+            assertThat(cdx.getRequests().size(), is(requests + 1));
+        }
+    }
+
+    @Test
+    public void testSharedByFetchersOfFactory() throws Exception {
+        FakeCdxTable cdx = createTable();
+        MetricRegistry metrics = new MetricRegistry();
+        WaybackURLKeyMaker keyMaker = new WaybackURLKeyMaker();
+        Connection connection = cdx.connection();
+        PrefetchingSnapshotsLocator locator = new PrefetchingSnapshotsLocator(
+            new HBaseSnapshotsLocator(connection, keyMaker, metrics), keyMaker, metrics, 1000, 10, 1);
+        // only the lookups are tested, no records are read
+        CaptureFilter noReads = new CaptureFilter(ImmutableSet.of("application/pdf"), ImmutableSet.<Integer> of(),
+            UrlFilter.ACCEPT_ALL, metrics);
+        TimeSpecification referenceTime = TimeSpecification.interval(LocalDate.of(2006, 1, 1),
+            LocalDate.of(2006, 12, 31), Period.ofMonths(1));
+        try (ArchiveFetcher.Factory factory = new ArchiveFetcher.Factory(locator, "/data", metrics, null,
+            mock(SnapshotReader.class), new RangeCoalescer(0, 0), 1024, noReads)) {
+            factory.get(1).get(CrawlUrl.fromSeed("http://www.spiegel.de/", 1.0f), referenceTime);
+            Histogram prefetched = metrics.histogram(name(PrefetchingSnapshotsLocator.class, "prefetchedRows"));
+            for (int i = 0; i < 1000 && prefetched.getCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(prefetched.getCount(), is(1L));
+            int requests = cdx.getRequests().size();
+
+            // another thread's fetcher is served from the same prefetched range
+            factory.get(1).get(CrawlUrl.fromSeed("http://www.spiegel.de/politik", 1.0f), referenceTime);
+            assertThat(cdx.getRequests().size(), is(requests));
+        }
+        verify(connection).close();
+    }
+
+}
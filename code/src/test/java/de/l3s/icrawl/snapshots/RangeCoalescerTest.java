@@ -0,0 +1,52 @@
+package de.l3s.icrawl.snapshots;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RangeCoalescerTest {
+
+    private static SnaphotLocation location(String warcFile, long offset, long length) {
+        return new SnaphotLocation("http://example.org/", null, warcFile, offset, length, "text/html", null);
+    }
+
+    @Test
+    public void testCoalesce() {
+        List<SnaphotLocation> locations = Arrays.asList(
+            location("b.warc.gz", 1000, 100),
+            location("a.warc.gz", 5000, 100),
+            location("a.warc.gz", 1000, 100),
+            location("a.warc.gz", 1150, 100),
+            location("a.warc.gz", 1300, -1));
+        List<int[]> groups = new RangeCoalescer(100, 1 << 20).coalesce(locations);
+        assertThat(groups.size(), is(4));
+        assertThat(groups.get(0), is(new int[] { 2, 3 }));
+        assertThat(groups.get(1), is(new int[] { 4 }));
+        assertThat(groups.get(2), is(new int[] { 1 }));
+        assertThat(groups.get(3), is(new int[] { 0 }));
+    }
+
+    @Test
+    public void testMaxReadSize() {
+        List<SnaphotLocation> locations = Arrays.asList(
+            location("a.warc.gz", 0, 100),
+            location("a.warc.gz", 100, 100),
+            location("a.warc.gz", 200, 100));
+        List<int[]> groups = new RangeCoalescer(0, 200).coalesce(locations);
+        assertThat(groups, contains(new int[] { 0, 1 }, new int[] { 2 }));
+    }
+
+    @Test
+    public void testNone() {
+        List<SnaphotLocation> locations = Arrays.asList(
+            location("a.warc.gz", 0, 100),
+            location("a.warc.gz", 100, 100));
+        assertThat(RangeCoalescer.NONE.coalesce(locations), contains(new int[] { 0 }, new int[] { 1 }));
+    }
+
+}
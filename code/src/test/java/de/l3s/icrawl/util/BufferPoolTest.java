@@ -0,0 +1,71 @@
+package de.l3s.icrawl.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1 << 20, 2);
+        byte[] buffer = pool.acquire(5000);
+        assertThat(buffer.length, is(8192));
+        pool.release(buffer);
+        assertThat(pool.acquire(8000), is(sameInstance(buffer)));
+        assertThat(pool.acquire(8000), is(not(sameInstance(buffer))));
+    }
+
+    @Test
+    public void testLargeBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool(1 << 16, 2);
+        byte[] buffer = pool.acquire(100_000);
+        assertThat(buffer.length, is(100_000));
+        pool.release(buffer);
+        assertThat(pool.acquire(100_000), is(not(sameInstance(buffer))));
+    }
+
+    @Test
+    public void testStreamReleasesBuffer() throws IOException {
+        BufferPool pool = new BufferPool(1 << 16, 2);
+        byte[] buffer = pool.acquire(10);
+        buffer[0] = 42;
+        try (InputStream is = pool.openStream(buffer, 1)) {
+            assertThat(is.read(), is(42));
+            assertThat(is.read(), is(-1));
+        }
+        assertThat(pool.acquire(10), is(sameInstance(buffer)));
+    }
+
+    @Test
+    public void testPooledByteBufferReferences() throws IOException {
+        BufferPool pool = new BufferPool(1 << 16, 2);
+        byte[] buffer = pool.acquire(10);
+        buffer[0] = 42;
+        PooledByteBuffer pooled = pool.wrap(buffer, 1);
+        pooled.retain();
+        pooled.release();
+        assertThat(pool.acquire(10), is(not(sameInstance(buffer))));
+        try (InputStream is = pooled.openStream()) {
+            assertThat(is.read(), is(42));
+            assertThat(is.read(), is(-1));
+        }
+        pooled.release();
+        assertThat(pool.acquire(10), is(sameInstance(buffer)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleasedBufferCannotBeRetained() {
+        BufferPool pool = new BufferPool(1 << 16, 2);
+        PooledByteBuffer pooled = pool.wrap(pool.acquire(10), 10);
+        pooled.release();
+        pooled.retain();
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.l3s.icrawl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Attributes;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HtmlTokenizerTest {
+
+    private static List<String> tokenize(String html) {
+        List<String> tokens = new ArrayList<>();
+        HtmlTokenizer.tokenize(html, new HtmlTokenizer.Handler() {
+            @Override
+            public void startTag(String name, Attributes attributes, boolean selfClosing) {
+                StringBuilder sb = new StringBuilder("<").append(name);
+                attributes.forEach(a -> sb.append(' ').append(a.getKey()).append("=").append(a.getValue()));
+                tokens.add(sb.append(selfClosing ? "/>" : ">").toString());
+            }
+
+            @Override
+            public void endTag(String name) {
+                tokens.add("</" + name + ">");
+            }
+
+            @Override
+            public void text(String text) {
+                tokens.add(text);
+            }
+        });
+        return tokens;
+    }
+
+    @Test
+    public void testTags() {
+        assertThat(tokenize("<P Class=\"a\" id='b' hidden>x &lt; y</p><br/>"),
+            is(asList("<p class=a id=b hidden=>", "x < y", "</p>", "<br/>")));
+    }
+
+    @Test
+    public void testAttributeEntities() {
+        assertThat(tokenize("<a href=\"?a=1&amp;b=2\" href=\"other\">"), is(asList("<a href=?a=1&b=2>")));
+    }
+
+    @Test
+    public void testSkippedContent() {
+        assertThat(tokenize("<!DOCTYPE html><!-- <b> -->a<script>if (a < b) '</p>';</script>b"),
+            is(asList("a", "<script>", "</script>", "b")));
+    }
+
+    @Test
+    public void testTitleIsText() {
+        assertThat(tokenize("<title>a <b> &amp;</title>"), is(asList("<title>", "a <b> &", "</title>")));
+    }
+
+    @Test
+    public void testLiteralLessThan() {
+        assertThat(tokenize("1 < 2 <3"), is(asList("1 < 2 <3")));
+    }
+
+    @Test
+    public void testUnterminated() {
+        assertThat(tokenize("a<b"), is(asList("a", "<b>")));
+        assertThat(tokenize("a<!-- b"), is(asList("a")));
+    }
+}
@@ -1,13 +1,25 @@
 package de.l3s.icrawl.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
+import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
 import org.junit.Test;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+
 import de.l3s.icrawl.crawler.TestUtils;
 import de.l3s.icrawl.util.TextExtractor;
 
+import static com.google.common.base.CharMatcher.WHITESPACE;
+import static java.util.Locale.ROOT;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -48,4 +60,154 @@ public class TextExtractorTest {
         assertTrue(TextExtractor.isIgnoredElement(elementWithTagName("STYLE")));
         assertTrue(TextExtractor.isIgnoredElement(elementWithTagName("script")));
     }
+
+    @Test
+    public void testSameAsReferenceOnRandomDocuments() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String html = randomHtml(random);
+            Document doc = Jsoup.parse(html, "http://example.com/");
+            assertThat(html, TextExtractor.extractText(doc), equalTo(ReferenceExtractor.extractText(doc)));
+            Element body = doc.body();
+            assertThat(html, TextExtractor.extractText(body), equalTo(ReferenceExtractor.extractText(body)));
+        }
+    }
+
+    @Test
+    public void testTextCollectorSameAsReference() {
+        Random random = new Random(23);
+        for (int i = 0; i < 500; i++) {
+            String html = randomHtml(random);
+            Document doc = Jsoup.parse(html, "http://example.com/");
+            TextExtractor.TextCollector collector = new TextExtractor.TextCollector();
+            for (Element child : doc.children()) {
+                collect(child, collector);
+            }
+            assertThat(html, collector.getText(), equalTo(ReferenceExtractor.extractText(doc)));
+        }
+    }
+
+    private static void collect(Node node, TextExtractor.TextCollector collector) {
+        if (node instanceof Element) {
+            Element elem = (Element) node;
+            if (TextExtractor.isIgnoredElement(elem)) {
+                return;
+            }
+            collector.element(elem);
+            for (Node child : elem.childNodes()) {
+                collect(child, collector);
+            }
+        } else if (node instanceof TextNode) {
+            collector.text((TextNode) node);
+        }
+    }
+
+    @Test
+    public void testBufferIsReset() {
+        Document first = Jsoup.parse("<p>A long first document</p><p>with two paragraphs</p>");
+        Document second = Jsoup.parse("<p>Short</p>");
+        assertThat(TextExtractor.extractText(first), equalTo("A long first document\n\nwith two paragraphs"));
+        assertThat(TextExtractor.extractText(second), equalTo("Short"));
+        assertThat(TextExtractor.extractText(Jsoup.parse("")), equalTo(""));
+    }
+
+    private static final String[] TAGS = { "p", "div", "span", "a", "b", "br", "li", "td", "pre", "h1", "script",
+            "style", "title", "noscript", "foo", "hgroup", "details", "ins", "s" };
+    private static final String[] TEXTS = { "a", "Bc", "d\u00e9f", " ", "  ", "\t", "\n", "\r\n", "\f",
+            "\u00a0", "&nbsp;", "\u000b", "\u0001", "\u2003", "&amp;", "<!-- c -->", "x y", " z " };
+
+    private static String randomHtml(Random random) {
+        StringBuilder sb = new StringBuilder();
+        appendRandomContent(random, sb, 0);
+        return sb.toString();
+    }
+
+    private static void appendRandomContent(Random random, StringBuilder sb, int depth) {
+        int parts = random.nextInt(5);
+        for (int i = 0; i < parts; i++) {
+            if (depth < 5 && random.nextInt(3) == 0) {
+                String tag = TAGS[random.nextInt(TAGS.length)];
+                sb.append('<').append(tag).append('>');
+                if (!"br".equals(tag)) {
+                    appendRandomContent(random, sb, depth + 1);
+                    // unclosed tags are left to the parser
+                    if (random.nextInt(4) != 0) {
+                        sb.append("</").append(tag).append('>');
+                    }
+                }
+            } else {
+                sb.append(TEXTS[random.nextInt(TEXTS.length)]);
+            }
+        }
+    }
+
+    /** The original implementation, the reference for the output */
+    private static final class ReferenceExtractor {
+        private static final Set<String> BLOCK_ELEMENTS = ImmutableSet.of("html", "head", "body", "frameset",
+            "script", "noscript", "style", "meta", "link", "title", "frame", "noframes", "section", "nav", "aside",
+            "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4", "h5", "h6", "ul", "ol", "pre", "div",
+            "blockquote", "hr", "address", "figure", "figcaption", "form", "fieldset", "ins", "del", "s", "dl", "dt",
+            "dd", "li", "table", "caption", "thead", "tfoot", "tbody", "colgroup", "col", "tr", "th", "td",
+            "video", "audio", "canvas", "details", "menu", "plaintext");
+        private static final Set<String> IGNORED_ELEMENTS = ImmutableSet.of("script", "style", "head");
+
+        static String extractText(Element node) {
+            List<String> paragraphs = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            extract(node, paragraphs, sb);
+            return finish(paragraphs, sb);
+        }
+
+        static String extractText(Document doc) {
+            List<String> paragraphs = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            for (Element node : doc.children()) {
+                extract(node, paragraphs, sb);
+            }
+            return finish(paragraphs, sb);
+        }
+
+        private static String finish(List<String> paragraphs, StringBuilder sb) {
+            TextExtractor.trimRight(sb);
+            if (sb.length() != 0) {
+                paragraphs.add(sb.toString());
+            }
+            return Joiner.on("\n\n").join(paragraphs);
+        }
+
+        private static void extract(Element elem, List<String> paragraphs, StringBuilder sb) {
+            String name = elem.tagName().toLowerCase(ROOT);
+            if (IGNORED_ELEMENTS.contains(name)) {
+                return;
+            } else if (BLOCK_ELEMENTS.contains(name)) {
+                TextExtractor.trimRight(sb);
+                if (sb.length() != 0) {
+                    paragraphs.add(sb.toString());
+                    sb.setLength(0);
+                }
+            } else if ("br".equals(name)) {
+                sb.append('\n');
+            }
+            for (Node child : elem.childNodes()) {
+                if (child instanceof Element) {
+                    extract((Element) child, paragraphs, sb);
+                } else if (child instanceof TextNode) {
+                    handleText(((TextNode) child).text(), sb);
+                }
+            }
+        }
+
+        private static void handleText(String text, StringBuilder sb) {
+            if (text.isEmpty() || (WHITESPACE.matchesAllOf(text) && sb.length() == 0)) {
+                return;
+            }
+            if (WHITESPACE.matches(text.charAt(0))) {
+                TextExtractor.ensureEndsWithSpace(sb);
+            }
+            sb.append(text.trim());
+            if (WHITESPACE.matches(text.charAt(text.length() - 1))) {
+                sb.append(' ');
+            }
+        }
+    }
 }
@@ -0,0 +1,125 @@
+package org.openimaj.text.nlp.language;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openimaj.text.nlp.language.LanguageDetector.WeightedLocale;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class LanguageDetectorTest {
+    private static final String[] TEXTS = {
+            "The quick brown fox jumps over the lazy dog and keeps running through the forest.",
+            "Der schnelle braune Fuchs springt über den faulen Hund und läuft weiter durch den Wald.",
+            "Le renard brun rapide saute par-dessus le chien paresseux et court dans la forêt." };
+    private static LanguageDetector detector;
+
+    @BeforeClass
+    public static void loadModel() throws IOException {
+        detector = new LanguageDetector();
+    }
+
+    @Test
+    public void testClassify() {
+        assertThat(detector.classify(TEXTS[0]).language, is("en"));
+        assertThat(detector.classify(TEXTS[1]).language, is("de"));
+        assertThat(detector.classify(TEXTS[2]).language, is("fr"));
+    }
+
+    @Test
+    public void testWorkspaceIsReset() {
+        WeightedLocale first = detector.classify(TEXTS[1]);
+        detector.classify(TEXTS[0]);
+        detector.classify("");
+        WeightedLocale second = detector.classify(TEXTS[1]);
+        assertThat(second.language, is(first.language));
+        assertThat(second.confidence, is(first.confidence));
+    }
+
+    @Test
+    public void testConcurrentClassify() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<WeightedLocale>> results = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                String text = TEXTS[i % TEXTS.length];
+                results.add(executor.submit(() -> detector.classify(text)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                WeightedLocale expected = detector.classify(TEXTS[i % TEXTS.length]);
+                assertThat(results.get(i).get().language, is(expected.language));
+                assertThat(results.get(i).get().confidence, is(expected.confidence));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLogFactorial() {
+        double expected = 0;
+        for (int n = 1; n < 5000; n++) {
+            expected += Math.log(n);
+            assertEquals(expected, LanguageDetector.logFactorial(n), 1e-9 * expected);
+        }
+        assertThat(LanguageDetector.logFactorial(0), is(0.0));
+    }
+
+    @Test
+    public void testSample() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("word").append(i).append(' ');
+        }
+        String sample = LanguageDetector.sample(sb.toString(), 400);
+        assertThat(sample.length(), lessThanOrEqualTo(400 + LanguageDetector.SAMPLE_WINDOWS));
+        assertThat(sample, containsString("word0 "));
+        assertThat(sample, containsString(" word881 "));
+        // windows start at word boundaries, they can end within a word
+        for (String token : sample.split(" ")) {
+            assertThat(token, token.matches("w|wo|wor|word\\d*"), is(true));
+        }
+    }
+
+    @Test
+    public void testSampleKeepsSurrogatePairs() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("\ud83d\ude00");
+        }
+        String sample = LanguageDetector.sample(sb.toString(), 99);
+        for (int i = 0; i < sample.length(); i++) {
+            if (Character.isHighSurrogate(sample.charAt(i))) {
+                assertThat(Character.isLowSurrogate(sample.charAt(++i)), is(true));
+            } else {
+                assertThat(Character.isSurrogate(sample.charAt(i)), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void testClassifySample() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(TEXTS[1]).append(' ');
+        }
+        String text = sb.toString();
+        assertThat(detector.classifySample(text, 1024, 50.0).language, is("de"));
+        // short texts and ambiguous samples are classified completely
+        WeightedLocale full = detector.classify(TEXTS[0]);
+        assertThat(detector.classifySample(TEXTS[0], 1024, 50.0).confidence, is(full.confidence));
+        full = detector.classify(text);
+        assertThat(detector.classifySample(text, 1024, Double.POSITIVE_INFINITY).confidence, is(full.confidence));
+    }
+}
@@ -0,0 +1,86 @@
+package org.openimaj.text.nlp.language;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class MappedLanguageModelTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        LanguageModel model = new LanguageDetector().getLanguageModel();
+        File file = folder.newFile("language.model.mapped");
+        MappedLanguageModel.write(model, file);
+        MappedLanguageModel mapped = MappedLanguageModel.map(file);
+
+        assertArrayEquals(model.naiveBayesClasses, mapped.naiveBayesClasses);
+        assertThat(mapped.naiveBayesNFeats, is(model.naiveBayesNFeats));
+        assertArrayEquals(model.naiveBayesPC.getData(), toArray(mapped.naiveBayesPC.duplicate()), 0.0);
+        assertArrayEquals(model.naiveBayesPTC.getData(), toArray(mapped.naiveBayesPTC.duplicate()), 0.0);
+        int[] nextMove = new int[mapped.tk_nextmove.limit()];
+        mapped.tk_nextmove.duplicate().get(nextMove);
+        assertArrayEquals(model.tk_nextmove, nextMove);
+        for (int state = 0; state < mapped.numStates; state++) {
+            int start = mapped.tk_outputOffsets.get(state);
+            int[] output = new int[mapped.tk_outputOffsets.get(state + 1) - start];
+            for (int i = 0; i < output.length; i++) {
+                output[i] = mapped.tk_output.get(start + i);
+            }
+            int[] expected = model.tk_output.get(state);
+            assertArrayEquals(expected != null ? expected : new int[0], output);
+        }
+
+        String text = "Der schnelle braune Fuchs springt über den faulen Hund.";
+        assertThat(new LanguageDetector(mapped).classify(text).confidence,
+            is(new LanguageDetector().classify(text).confidence));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongFormat() throws IOException {
+        File file = folder.newFile("other");
+        Files.write(file.toPath(), new byte[64]);
+        MappedLanguageModel.map(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        File file = folder.newFile("language.model.mapped");
+        MappedLanguageModel.write(new LanguageDetector().getLanguageModel(), file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        MappedLanguageModel.map(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptHeader() throws IOException {
+        File file = folder.newFile("language.model.mapped");
+        MappedLanguageModel.write(new LanguageDetector().getLanguageModel(), file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            // the number of features
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, Integer.MAX_VALUE), 12);
+        }
+        MappedLanguageModel.map(file);
+    }
+
+    private static double[] toArray(DoubleBuffer buffer) {
+        double[] values = new double[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+}